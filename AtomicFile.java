@@ -0,0 +1,369 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Crash-safe whole-file writes and verified reads for the data files.
+ * A file is written to a sibling ".tmp" file, given a checksum trailer,
+ * optionally fsynced, and only then renamed over the target; the previous
+ * version is kept as ".bak" (a hard link where the file system allows it, so
+ * keeping it copies nothing). A crash therefore leaves either the old or the
+ * new file in place, never a half-written one. Readers check the trailer
+ * and fall back to the ".bak" copy when the file is missing, truncated or
+ * fails its checksum.
+ *
+ * Trailer (34 ASCII bytes, appended after the content):
+ *   "\n#crc32c " + 8 hex digits (CRC32C of the content) + " " + 16 hex digits (content length) + "\n"
+ * so text files stay line-oriented. Binary readers that stop at the end of
+ * their own data ignore it; text readers use openContent, which ends before it.
+ */
+public final class AtomicFile {
+    private static final String TRAILER_PREFIX = "\n#crc32c ";
+    private static final int TRAILER_LENGTH = TRAILER_PREFIX.length() + 8 + 1 + 16 + 1;
+    // fsync before the rename unless run with -Dcalendar.fsync=false
+    private static final boolean FSYNC = Boolean.parseBoolean(System.getProperty("calendar.fsync", "true"));
+
+    // State of a file on disk
+    public enum Status { VALID, LEGACY, CORRUPT, MISSING }
+
+    // Writes the content of a file; it may close the stream it is given
+    public interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // The file to read for a path and the status its check found
+    private static final class Source {
+        final Path path;
+        final Status status;
+
+        Source(Path path, Status status) {
+            this.path = path;
+            this.status = status;
+        }
+
+        // Bytes before the trailer
+        long contentLength(long size) {
+            return status == Status.VALID ? size - TRAILER_LENGTH : size;
+        }
+    }
+
+    private AtomicFile() {
+    }
+
+    // Replace target with the content written by body, atomically
+    public static void write(Path target, Body body) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = sibling(target, ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            ContentStream content = new ContentStream(file);
+            body.writeTo(content);
+            content.flush();
+            file.write(trailer(content.crc.getValue(), content.length));
+            file.flush();
+            if (FSYNC) {
+                channel.force(true);
+            }
+            Metrics.bytesWritten(content.length + TRAILER_LENGTH);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        commit(tmp, target, dir);
+    }
+
+    // Replace target with the verified content of source. A file with a valid trailer is copied whole,
+    // trailer included, by FileChannel.transferTo (no copy through the heap); others get a new trailer
+    public static void copy(Path source, Path target) throws IOException {
+        Source picked = pick(source);
+        if (picked == null) {
+            throw new FileNotFoundException(source.toString());
+        }
+        Path from = picked.path;
+        if (picked.status != Status.VALID) {
+            try (InputStream in = open(picked)) {
+                write(target, out -> in.transferTo(out));
+            }
+            return;
+        }
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = sibling(target, ".tmp");
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            for (long position = 0; position < size; ) {
+                long n = in.transferTo(position, size - position, out);
+                if (n <= 0) {
+                    throw new IOException(from + " shrank while it was copied");
+                }
+                position += n;
+            }
+            if (FSYNC) {
+                out.force(true);
+            }
+            Metrics.bytesWritten(size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        commit(tmp, target, dir);
+    }
+
+    // Move a finished tmp file over target, keeping the previous target as ".bak"
+    private static void commit(Path tmp, Path target, Path dir) throws IOException {
+        keepBackup(target);
+        move(tmp, target);
+        if (FSYNC) {
+            syncDirectory(dir);
+        }
+    }
+
+    // True if path or its backup exists
+    public static boolean exists(Path path) {
+        return Files.exists(path) || Files.exists(sibling(path, ".bak"));
+    }
+
+    // The file to read for path: path itself, or its ".bak" copy if path is damaged or missing. Returns
+    // null if neither exists. A file without a trailer is accepted unless a valid backup exists
+    public static Path resolve(Path path) throws IOException {
+        Source picked = pick(path);
+        return picked == null ? null : picked.path;
+    }
+
+    // What resolve picks, with the status found on the way, so readers need not check it again
+    private static Source pick(Path path) throws IOException {
+        Status status = check(path);
+        if (status == Status.VALID) {
+            return new Source(path, status);
+        }
+        Path backup = sibling(path, ".bak");
+        Status backupStatus = check(backup);
+        if (status == Status.LEGACY && backupStatus != Status.VALID) {
+            return new Source(path, status);
+        }
+        if (backupStatus == Status.VALID || backupStatus == Status.LEGACY) {
+            if (status != Status.MISSING) {
+                String problem = status == Status.LEGACY ? "has no checksum trailer" : "failed its checksum";
+                System.err.println(path + " " + problem + ", recovering from " + backup);
+            }
+            return new Source(backup, backupStatus);
+        }
+        if (status == Status.CORRUPT) {
+            throw new IOException(path + " failed its checksum and has no usable backup");
+        }
+        return null;
+    }
+
+    // Stream over the content of the file resolve() picks, without its trailer; null if there is none
+    public static InputStream openContent(Path path) throws IOException {
+        Source picked = pick(path);
+        return picked == null ? null : open(picked);
+    }
+
+    private static InputStream open(Source source) throws IOException {
+        long length = source.contentLength(Files.size(source.path));
+        Metrics.bytesRead(length);
+        return new BoundedInputStream(new BufferedInputStream(Files.newInputStream(source.path), 1 << 16), length);
+    }
+
+    // The same content mapped read-only into memory; null if there is none
+    public static ByteBuffer mapContent(Path path) throws IOException {
+        Source picked = pick(path);
+        if (picked == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(picked.path, StandardOpenOption.READ)) {
+            long length = picked.contentLength(channel.size());
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(picked.path + " is too large to map: " + length + " bytes");
+            }
+            Metrics.bytesRead(length);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    // Verify path's trailer and checksum
+    public static Status check(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return Status.MISSING;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_LENGTH) {
+                return Status.LEGACY;
+            }
+            ByteBuffer tail = ByteBuffer.allocate(TRAILER_LENGTH);
+            while (tail.hasRemaining() && channel.read(tail, size - TRAILER_LENGTH + tail.position()) >= 0) {
+                // keep reading
+            }
+            Metrics.bytesRead(TRAILER_LENGTH);
+            String trailer = new String(tail.array(), StandardCharsets.US_ASCII);
+            if (!trailer.startsWith(TRAILER_PREFIX) || trailer.charAt(TRAILER_LENGTH - 1) != '\n') {
+                return Status.LEGACY;
+            }
+            long crc;
+            long length;
+            try {
+                int at = TRAILER_PREFIX.length();
+                crc = Long.parseLong(trailer.substring(at, at + 8), 16);
+                length = Long.parseLong(trailer.substring(at + 9, at + 25), 16);
+            } catch (NumberFormatException e) {
+                return Status.CORRUPT;
+            }
+            if (length != size - TRAILER_LENGTH) {
+                return Status.CORRUPT;
+            }
+            CRC32C actual = new CRC32C();
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+            long position = 0;
+            while (position < length) {
+                buf.clear();
+                buf.limit((int) Math.min(buf.capacity(), length - position));
+                int n = channel.read(buf, position);
+                if (n < 0) {
+                    return Status.CORRUPT;
+                }
+                buf.flip();
+                actual.update(buf);
+                position += n;
+            }
+            Metrics.bytesRead(length);
+            return actual.getValue() == crc ? Status.VALID : Status.CORRUPT;
+        }
+    }
+
+    private static byte[] trailer(long crc, long length) {
+        return String.format("%s%08x %016x\n", TRAILER_PREFIX, crc, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    // Keep the current target as ".bak"; linking leaves the target in place until the rename replaces it
+    private static void keepBackup(Path target) throws IOException {
+        if (!Files.exists(target)) {
+            return;
+        }
+        Path backup = sibling(target, ".bak");
+        Files.deleteIfExists(backup);
+        try {
+            Files.createLink(backup, target);
+        } catch (UnsupportedOperationException | IOException e) {
+            move(target, backup);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Make the renames durable; not supported on every platform, where it is skipped
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for sync here
+        }
+    }
+
+    // Checksums and counts the content; closing it only flushes, so the trailer can follow
+    private static class ContentStream extends OutputStream {
+        private final OutputStream out;
+        final CRC32C crc = new CRC32C();
+        long length;
+
+        ContentStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            length += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    // Ends after a fixed number of bytes
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
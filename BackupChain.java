@@ -0,0 +1,391 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Backups kept as a chain: one full base file, then increments that each
+ * hold only the events added, changed or deleted since the backup before.
+ * For a base path P:
+ *   P         every event with its additional fields, in the events file format
+ *   P.1, P.2  increments: a header line "#increment||n||deleted||changed", the
+ *             deleted ids one per line, then the changed events as in P
+ *   P.index   id and content hash of every event as of the newest file in the
+ *             chain; the next increment is whatever no longer matches it
+ * A base path ending in ".gz" makes P and its increments gzip streams,
+ * compressed as they are written. Every file is written atomically with a
+ * checksum trailer. The index is only written once the file it describes
+ * is in place, and removed before a new base replaces an old chain, so an
+ * interrupted backup at worst makes the next one a full backup.
+ */
+public final class BackupChain {
+    private static final int INDEX_MAGIC = 0x43414C49; // "CALI"
+    private static final int INDEX_VERSION = 1;
+    private static final String INDEX_SUFFIX = ".index";
+    private static final String INCREMENT_HEADER = "#increment";
+    private static final String DELIMITER = "||";
+    private static final int BUFFER = 1 << 16;
+
+    private BackupChain() {
+    }
+
+    // What one backup wrote; increment is 0 for a base
+    public static final class Result {
+        public final int increment;
+        public final int changed;
+        public final int deleted;
+
+        Result(int increment, int changed, int deleted) {
+            this.increment = increment;
+            this.changed = changed;
+            this.deleted = deleted;
+        }
+    }
+
+    // Start a new chain at base with a full backup of events and their fields
+    public static Result writeBase(Path base, List<Event> events,
+                                   Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        startChain(base);
+        write(base, out -> FileManager.writeEventsCsv(out, events, fields));
+        writeIndex(base, 0, events, fields);
+        return new Result(0, events.size(), 0);
+    }
+
+    // Same, by copying source, an events file that already holds exactly events and fields
+    public static Result copyBase(Path base, Path source, List<Event> events,
+                                  Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        if (isCompressed(base)) {
+            return writeBase(base, events, fields);
+        }
+        startChain(base);
+        AtomicFile.copy(source, base);
+        writeIndex(base, 0, events, fields);
+        return new Result(0, events.size(), 0);
+    }
+
+    // Append an increment with what changed since the newest backup of the chain; a new base if there
+    // is no usable chain at base
+    public static Result writeIncrement(Path base, List<Event> events,
+                                        Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        Index previous = readIndex(base);
+        if (previous == null || !AtomicFile.exists(base)) {
+            return writeBase(base, events, fields);
+        }
+        Index current = Index.of(events, fields);
+
+        // Walk both id-ordered tables: ids only in the new one changed, ids only in the old one were deleted
+        List<Integer> changedAt = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < current.size() || j < previous.size()) {
+            if (j == previous.size() || (i < current.size() && current.ids[i] < previous.ids[j])) {
+                changedAt.add(current.positions[i++]);
+            } else if (i == current.size() || current.ids[i] > previous.ids[j]) {
+                deleted.add(previous.ids[j++]);
+            } else {
+                if (current.hashes[i] != previous.hashes[j]) {
+                    changedAt.add(current.positions[i]);
+                }
+                i++;
+                j++;
+            }
+        }
+        // Changed events go out in the order they were given
+        Collections.sort(changedAt);
+        List<Event> changed = new ArrayList<>(changedAt.size());
+        for (int at : changedAt) {
+            changed.add(events.get(at));
+        }
+
+        int n = previous.increments + 1;
+        write(increment(base, n), out -> {
+            out.write(INCREMENT_HEADER + DELIMITER + n + DELIMITER + deleted.size() + DELIMITER + changed.size());
+            out.write(System.lineSeparator());
+            for (int id : deleted) {
+                out.write(Integer.toString(id));
+                out.write(System.lineSeparator());
+            }
+            FileManager.writeEventsCsv(out, changed, fields);
+        });
+        current.increments = n;
+        current.write(indexPath(base));
+        return new Result(n, changed.size(), deleted.size());
+    }
+
+    // Events of the base with up to maxIncrements increments replayed on top, their fields into fields.
+    // Without increments the base is read as it is; with them each id is kept once, in first-seen order
+    public static List<Event> read(Path base, int maxIncrements,
+                                   Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        List<Event> events = isCompressed(base)
+                ? FileManager.parseEventsCsv(openText(base), base.toString(), 0, fields)
+                : FileManager.parseEventsCsv(base.toFile(), fields);
+        if (maxIncrements < 1 || !AtomicFile.exists(increment(base, 1))) {
+            return events;
+        }
+        Map<Integer, Event> byId = new LinkedHashMap<>();
+        for (Event e : events) {
+            byId.put(e.getEventId(), e);
+        }
+        for (int n = 1; n <= maxIncrements && AtomicFile.exists(increment(base, n)); n++) {
+            replay(increment(base, n), n, byId, fields);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    // Number of increments in the chain at base
+    public static int increments(Path base) {
+        int n = 0;
+        while (AtomicFile.exists(increment(base, n + 1))) {
+            n++;
+        }
+        return n;
+    }
+
+    // ==================== FILES ====================
+
+    static Path increment(Path base, int n) {
+        return base.resolveSibling(base.getFileName() + "." + n);
+    }
+
+    private static Path indexPath(Path base) {
+        return base.resolveSibling(base.getFileName() + INDEX_SUFFIX);
+    }
+
+    private static boolean isCompressed(Path base) {
+        return base.getFileName().toString().endsWith(".gz");
+    }
+
+    // Drop the index, then every increment from the newest down, so no stale increment outlives its chain
+    private static void startChain(Path base) throws IOException {
+        deleteWithBackup(indexPath(base));
+        Path dir = base.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        String prefix = base.getFileName() + ".";
+        List<Integer> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                String suffix = name.startsWith(prefix) ? name.substring(prefix.length()) : "";
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit) && suffix.length() < 10) {
+                    numbers.add(Integer.parseInt(suffix));
+                }
+            });
+        }
+        numbers.sort(Comparator.reverseOrder());
+        for (int n : numbers) {
+            deleteWithBackup(increment(base, n));
+        }
+    }
+
+    private static void deleteWithBackup(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".bak"));
+    }
+
+    // Body that writes text
+    private interface TextBody {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    // Write a chain file atomically, compressed if the chain is
+    private static void write(Path path, TextBody body) throws IOException {
+        boolean compressed = isCompressed(path) || path.getFileName().toString().matches(".*\\.gz\\.\\d+");
+        AtomicFile.write(path, content -> {
+            OutputStream out = compressed ? new GZIPOutputStream(content, BUFFER) : content;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out), BUFFER);
+            body.writeTo(writer);
+            writer.flush();
+            if (out instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) out).finish();
+            }
+        });
+    }
+
+    // Text of a chain file, decompressed if the chain is compressed
+    private static Reader openText(Path path) throws IOException {
+        InputStream content = AtomicFile.openContent(path);
+        if (content == null) {
+            throw new FileNotFoundException(path.toString());
+        }
+        boolean compressed = isCompressed(path) || path.getFileName().toString().matches(".*\\.gz\\.\\d+");
+        return new InputStreamReader(compressed ? new GZIPInputStream(content, BUFFER) : content);
+    }
+
+    // Apply increment n: its deletes, then its events, each replacing the event and fields of its id
+    private static void replay(Path path, int n, Map<Integer, Event> byId,
+                               Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        BufferedReader in = new BufferedReader(openText(path), BUFFER);
+        try {
+            String header = in.readLine();
+            String[] parts = header == null ? new String[0] : header.split("\\|\\|", -1);
+            if (parts.length != 4 || !parts[0].equals(INCREMENT_HEADER) || !parts[1].equals(Integer.toString(n))) {
+                throw new IOException(path + " is not increment " + n + " of its chain");
+            }
+            int deletes = Integer.parseInt(parts[2]);
+            for (int i = 0; i < deletes; i++) {
+                String line = in.readLine();
+                if (line == null) {
+                    throw new IOException(path + " ends inside its deleted ids");
+                }
+                int id = Integer.parseInt(line.trim());
+                byId.remove(id);
+                fields.remove(id);
+            }
+            Map<Integer, AdditionalFieldManager.AdditionalFields> changedFields = new HashMap<>();
+            for (Event e : FileManager.parseEventsCsv(in, path.toString(), 1 + deletes, changedFields)) {
+                byId.put(e.getEventId(), e);
+                AdditionalFieldManager.AdditionalFields f = changedFields.get(e.getEventId());
+                if (f != null) {
+                    fields.put(e.getEventId(), f);
+                } else {
+                    fields.remove(e.getEventId());
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(path + " has a malformed header or deleted id: " + e.getMessage(), e);
+        } finally {
+            in.close();
+        }
+    }
+
+    // ==================== INDEX ====================
+
+    private static void writeIndex(Path base, int increments, List<Event> events,
+                                   Map<Integer, AdditionalFieldManager.AdditionalFields> fields) throws IOException {
+        Index index = Index.of(events, fields);
+        index.increments = increments;
+        index.write(indexPath(base));
+    }
+
+    // The chain's index, or null if it has none or it cannot be read. The header is checked against
+    // the file size and the ids must ascend, so a damaged or foreign index falls back to a full backup
+    private static Index readIndex(Path base) {
+        Path path = indexPath(base);
+        try (InputStream content = AtomicFile.openContent(path)) {
+            if (content == null) {
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(content, BUFFER));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            int increments = in.readInt();
+            int count = in.readInt();
+            // Each entry is an int id and a long hash
+            if (increments < 0 || count < 0 || count > Files.size(path) / 12) {
+                throw new IOException("invalid header (" + increments + " increments, " + count + " entries)");
+            }
+            Index index = new Index(count);
+            index.increments = increments;
+            for (int i = 0; i < count; i++) {
+                index.ids[i] = in.readInt();
+                index.hashes[i] = in.readLong();
+                if (i > 0 && index.ids[i] <= index.ids[i - 1]) {
+                    throw new IOException("ids out of order at entry " + i);
+                }
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("Error reading backup index, making a full backup: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Id and content hash of every event, ordered by id; positions are indexes into the events given
+    private static final class Index {
+        final int[] ids;
+        final long[] hashes;
+        final int[] positions;
+        int increments;
+
+        Index(int size) {
+            ids = new int[size];
+            hashes = new long[size];
+            positions = new int[size];
+        }
+
+        static Index of(List<Event> events, Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+            // Sorting id << 32 | position orders by id and carries the position along
+            long[] keys = new long[events.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = ((long) events.get(i).getEventId() << 32) | i;
+            }
+            Arrays.sort(keys);
+            Index index = new Index(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                int position = (int) keys[i];
+                Event e = events.get(position);
+                index.ids[i] = e.getEventId();
+                index.positions[i] = position;
+                index.hashes[i] = hash(e, fields.get(e.getEventId()));
+            }
+            return index;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        void write(Path path) throws IOException {
+            AtomicFile.write(path, content -> {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(content, BUFFER));
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeInt(increments);
+                out.writeInt(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    out.writeInt(ids[i]);
+                    out.writeLong(hashes[i]);
+                }
+                out.flush();
+            });
+        }
+    }
+
+    // 64-bit hash of everything a backup line holds for e and its fields
+    static long hash(Event e, AdditionalFieldManager.AdditionalFields f) {
+        long h = mix(0xCBF29CE484222325L, e.getEventId());
+        h = mix(h, hash(e.getTitle()));
+        h = mix(h, hash(e.getDescription()));
+        h = mix(h, e.getStart().toEpochSecond(ZoneOffset.UTC));
+        h = mix(h, e.getStart().getNano());
+        h = mix(h, e.getEnd().toEpochSecond(ZoneOffset.UTC));
+        h = mix(h, e.getEnd().getNano());
+        h = mix(h, e.isRecurring() ? 1 : 0);
+        h = mix(h, hash(e.getRecurrenceType()));
+        h = mix(h, e.getRecurrenceCount());
+        h = mix(h, e.getSeriesId());
+        h = mix(h, e.getReminderMinutes());
+        if (f != null) {
+            h = mix(h, hash(f.location));
+            h = mix(h, hash(f.category));
+            h = mix(h, hash(f.attendees));
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // FNV-1a over the characters; null and "" differ
+    private static long hash(String s) {
+        if (s == null) {
+            return 0x5BD1E995L;
+        }
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,274 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Versioned binary snapshot of all events, read through a memory-mapped
+ * FileChannel. Compared with the || CSV it avoids regex splitting and ISO
+ * date parsing on load. Since version 3 the snapshot is the single store
+ * for an event and its additional fields, so both load in one pass and are
+ * replaced together. Files are written through AtomicFile; the reader stops
+ * at the end of the data, so the checksum trailer is never decoded.
+ *
+ * Layout (big-endian):
+ *   int magic, int version,
+ *   int typeCount, typeCount x string     -- interned recurrence types
+ *   int eventCount, eventCount x record
+ *   int ruleCount, ruleCount x rule     -- version 2 and later
+ *   int fieldCount, fieldCount x (int id, fields)     -- version 3: fields of ids with no record (rule occurrences)
+ * record:
+ *   int id, string title, string description,
+ *   byte flags (1 = recurring, 2 = sub-second times present, 4 = fields present),
+ *   long startEpochSecond, long endEpochSecond, [int startNano, int endNano],
+ *   byte recurrenceTypeIndex (-1 = none), int recurrenceCount, int seriesId, int reminderMinutes,
+ *   [fields]
+ * rule:
+ *   int seriesId, string title, string description, byte flags, times as above,
+ *   byte recurrenceTypeIndex, int count, int reminderMinutes,
+ *   int cancelledCount, cancelledCount x int occurrenceIndex
+ * fields: string location, string category, string attendees
+ * string: int byteLength + UTF-8 bytes
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x43414C53; // "CALS"
+    private static final int VERSION = 3;
+    private static final int FLAG_RECURRING = 1;
+    private static final int FLAG_NANOS = 2;
+    private static final int FLAG_FIELDS = 4;
+
+    // Decoded snapshot contents
+    public static class Contents {
+        public final List<Event> events;
+        public final List<RecurrenceRule> rules;
+        // Additional fields by event id; null if the source predates unified storage
+        public final Map<Integer, AdditionalFieldManager.AdditionalFields> fields;
+
+        public Contents(List<Event> events, List<RecurrenceRule> rules) {
+            this(events, rules, null);
+        }
+
+        public Contents(List<Event> events, List<RecurrenceRule> rules,
+                        Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+            this.events = events;
+            this.rules = rules;
+            this.fields = fields;
+        }
+    }
+
+    // Write all events to path, atomically replacing any existing file
+    public static void write(List<Event> events, Path path) throws IOException {
+        write(events, List.of(), Map.of(), path);
+    }
+
+    // Write events and recurrence rules to path, atomically replacing any existing file
+    public static void write(List<Event> events, List<RecurrenceRule> rules, Path path) throws IOException {
+        write(events, rules, Map.of(), path);
+    }
+
+    // Write events, recurrence rules and additional fields to path, atomically replacing any existing file
+    public static void write(List<Event> events, List<RecurrenceRule> rules,
+                             Map<Integer, AdditionalFieldManager.AdditionalFields> fields, Path path) throws IOException {
+        List<String> types = new ArrayList<>();
+        Map<String, Integer> typeIndex = new HashMap<>();
+        for (Event e : events) {
+            internType(e.getRecurrenceType(), types, typeIndex);
+        }
+        for (RecurrenceRule r : rules) {
+            internType(r.getRecurrenceType(), types, typeIndex);
+        }
+
+        // Fields not stored with an event record go in the trailing section
+        Map<Integer, AdditionalFieldManager.AdditionalFields> unattached = new HashMap<>(fields);
+
+        AtomicFile.write(path, content -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(content, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(types.size());
+            for (String type : types) {
+                writeString(out, type);
+            }
+            out.writeInt(events.size());
+            for (Event e : events) {
+                out.writeInt(e.getEventId());
+                writeString(out, e.getTitle());
+                writeString(out, e.getDescription());
+                AdditionalFieldManager.AdditionalFields f = unattached.remove(e.getEventId());
+                writeTimes(out, (e.isRecurring() ? FLAG_RECURRING : 0) | (f != null ? FLAG_FIELDS : 0),
+                           e.getStart(), e.getEnd());
+                Integer type = e.getRecurrenceType() == null ? null : typeIndex.get(e.getRecurrenceType());
+                out.writeByte(type == null ? -1 : type);
+                out.writeInt(e.getRecurrenceCount());
+                out.writeInt(e.getSeriesId());
+                out.writeInt(e.getReminderMinutes());
+                if (f != null) {
+                    writeFields(out, f);
+                }
+            }
+            out.writeInt(rules.size());
+            for (RecurrenceRule r : rules) {
+                out.writeInt(r.getSeriesId());
+                writeString(out, r.getTitle());
+                writeString(out, r.getDescription());
+                writeTimes(out, FLAG_RECURRING, r.getStart(), r.getEnd());
+                out.writeByte(typeIndex.get(r.getRecurrenceType()));
+                out.writeInt(r.getCount());
+                out.writeInt(r.getReminderMinutes());
+                BitSet cancelled = r.getCancelled();
+                out.writeInt(cancelled.cardinality());
+                for (int i = cancelled.nextSetBit(0); i >= 0; i = cancelled.nextSetBit(i + 1)) {
+                    out.writeInt(i);
+                }
+            }
+            out.writeInt(unattached.size());
+            for (Map.Entry<Integer, AdditionalFieldManager.AdditionalFields> entry : unattached.entrySet()) {
+                out.writeInt(entry.getKey());
+                writeFields(out, entry.getValue());
+            }
+            out.flush();
+        });
+    }
+
+    // Read only the events of a snapshot
+    public static List<Event> read(Path path) throws IOException {
+        return readContents(path).events;
+    }
+
+    // Read events, recurrence rules and (version 3 and later) additional fields from a snapshot written by write()
+    public static Contents readContents(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Metrics.bytesRead(size);
+            if (size < 8 || buf.getInt() != MAGIC) {
+                throw new IOException("Not an event snapshot: " + path);
+            }
+            int version = buf.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+
+            String[] types = new String[buf.getInt()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = readString(buf).intern();
+            }
+
+            int count = buf.getInt();
+            List<Event> events = new ArrayList<>(count);
+            Map<Integer, AdditionalFieldManager.AdditionalFields> fields = version >= 3 ? new HashMap<>() : null;
+            for (int i = 0; i < count; i++) {
+                int id = buf.getInt();
+                String title = readString(buf);
+                String desc = readString(buf);
+                int flags = buf.get();
+                LocalDateTime[] times = readTimes(buf, flags);
+                int type = buf.get();
+
+                Event e = new Event(id, title, desc, times[0], times[1]);
+                e.setRecurring((flags & FLAG_RECURRING) != 0);
+                e.setRecurrenceType(type < 0 ? null : types[type]);
+                e.setRecurrenceCount(buf.getInt());
+                e.setSeriesId(buf.getInt());
+                e.setReminderMinutes(buf.getInt());
+                if ((flags & FLAG_FIELDS) != 0) {
+                    fields.put(id, readFields(buf));
+                }
+                events.add(e);
+            }
+
+            List<RecurrenceRule> rules = new ArrayList<>();
+            if (version >= 2) {
+                int ruleCount = buf.getInt();
+                for (int i = 0; i < ruleCount; i++) {
+                    int seriesId = buf.getInt();
+                    String title = readString(buf);
+                    String desc = readString(buf);
+                    LocalDateTime[] times = readTimes(buf, buf.get());
+                    String type = types[buf.get()];
+                    RecurrenceRule r = new RecurrenceRule(seriesId, title, desc, times[0], times[1],
+                                                          type, buf.getInt(), buf.getInt());
+                    int cancelled = buf.getInt();
+                    for (int c = 0; c < cancelled; c++) {
+                        r.cancel(buf.getInt());
+                    }
+                    rules.add(r);
+                }
+            }
+            if (version >= 3) {
+                int fieldCount = buf.getInt();
+                for (int i = 0; i < fieldCount; i++) {
+                    int id = buf.getInt();
+                    fields.put(id, readFields(buf));
+                }
+            }
+            return new Contents(events, rules, fields);
+        }
+    }
+
+    private static void internType(String type, List<String> types, Map<String, Integer> typeIndex) {
+        if (type != null && !typeIndex.containsKey(type)) {
+            typeIndex.put(type, types.size());
+            types.add(type);
+        }
+    }
+
+    // Flags byte plus epoch seconds, with nanos only when either time has them
+    private static void writeTimes(DataOutputStream out, int flags, LocalDateTime start, LocalDateTime end) throws IOException {
+        boolean nanos = start.getNano() != 0 || end.getNano() != 0;
+        out.writeByte(flags | (nanos ? FLAG_NANOS : 0));
+        out.writeLong(start.toEpochSecond(ZoneOffset.UTC));
+        out.writeLong(end.toEpochSecond(ZoneOffset.UTC));
+        if (nanos) {
+            out.writeInt(start.getNano());
+            out.writeInt(end.getNano());
+        }
+    }
+
+    private static LocalDateTime[] readTimes(ByteBuffer buf, int flags) {
+        long startSecond = buf.getLong();
+        long endSecond = buf.getLong();
+        int startNano = 0;
+        int endNano = 0;
+        if ((flags & FLAG_NANOS) != 0) {
+            startNano = buf.getInt();
+            endNano = buf.getInt();
+        }
+        return new LocalDateTime[] {
+            LocalDateTime.ofEpochSecond(startSecond, startNano, ZoneOffset.UTC),
+            LocalDateTime.ofEpochSecond(endSecond, endNano, ZoneOffset.UTC)
+        };
+    }
+
+    private static void writeFields(DataOutputStream out, AdditionalFieldManager.AdditionalFields f) throws IOException {
+        writeString(out, f.location == null ? "" : f.location);
+        writeString(out, f.category == null ? "" : f.category);
+        writeString(out, f.attendees == null ? "" : f.attendees);
+    }
+
+    private static AdditionalFieldManager.AdditionalFields readFields(ByteBuffer buf) {
+        return new AdditionalFieldManager.AdditionalFields(readString(buf), readString(buf), readString(buf));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
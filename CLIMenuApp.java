@@ -1,7 +1,9 @@
 package calenderapp;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -10,12 +12,15 @@ import java.util.Scanner;
 public class CLIMenuApp {
     private EventManager eventManager;
     private CalenderViewCLI calendarView;
+    private ReminderScheduler reminders;
     private Scanner scanner;
     private DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
     public CLIMenuApp() {
         this.eventManager = new EventManager();
         this.calendarView = new CalenderViewCLI(eventManager);
+        this.reminders = new ReminderScheduler(eventManager, event ->
+            System.out.printf("%n🔔 Reminder: %s starts at %s%n", event.getTitle(), event.getStart().toLocalTime()));
         this.scanner = new Scanner(System.in);
     }
     
@@ -37,7 +42,10 @@ public class CLIMenuApp {
                 case "5" -> searchMenu();
                 case "6" -> statisticsView();
                 case "7" -> launchGUI();
+                case "8" -> metricsView();
                 case "0" -> {
+                    reminders.close();
+                    eventManager.close();
                     System.out.println("\nGoodbye! Your events have been saved.");
                     running = false;
                 }
@@ -59,6 +67,7 @@ public class CLIMenuApp {
         System.out.println("│ 5. Search Events                       │");
         System.out.println("│ 6. Statistics                          │");
         System.out.println("│ 7. Launch GUI                          │");
+        System.out.println("│ 8. Operation Metrics                   │");
         System.out.println("│ 0. Exit                                │");
         System.out.println("└────────────────────────────────────────┘");
         System.out.print("\nEnter your choice: ");
@@ -240,6 +249,7 @@ public class CLIMenuApp {
         System.out.println("╚════════════════════════════════════════╝");
         System.out.println("1. Search by keyword");
         System.out.println("2. Search by date range");
+        System.out.println("3. Find free time slots");
         System.out.println("0. Back");
         System.out.print("\nChoice: ");
         
@@ -248,9 +258,9 @@ public class CLIMenuApp {
         try {
             switch (choice) {
                 case "1" -> {
-                    System.out.print("Enter keyword: ");
-                    String keyword = scanner.nextLine().trim();
-                    var results = eventManager.searchByKeyword(keyword);
+                    System.out.print("Enter keywords (all must match): ");
+                    String keywords = scanner.nextLine().trim();
+                    var results = eventManager.searchByAllKeywords(keywords);
                     displaySearchResults(results);
                 }
                 case "2" -> {
@@ -261,6 +271,7 @@ public class CLIMenuApp {
                     var results = eventManager.searchByDateRange(start, end);
                     displaySearchResults(results);
                 }
+                case "3" -> findFreeSlotsInteractive();
                 case "0" -> {
                     return;
                 }
@@ -275,6 +286,35 @@ public class CLIMenuApp {
         }
     }
     
+    private void findFreeSlotsInteractive() {
+        System.out.print("Start date (yyyy-MM-dd): ");
+        LocalDate start = LocalDate.parse(scanner.nextLine().trim(), dateFormat);
+        System.out.print("End date (yyyy-MM-dd): ");
+        LocalDate end = LocalDate.parse(scanner.nextLine().trim(), dateFormat);
+        System.out.print("Duration in minutes: ");
+        int minutes = Integer.parseInt(scanner.nextLine().trim());
+        System.out.print("Working hours start (HH:mm, e.g. 09:00): ");
+        LocalTime dayStart = LocalTime.parse(scanner.nextLine().trim());
+        System.out.print("Working hours end (HH:mm, e.g. 17:00): ");
+        LocalTime dayEnd = LocalTime.parse(scanner.nextLine().trim());
+        System.out.print("Number of slots to show: ");
+        int count = Integer.parseInt(scanner.nextLine().trim());
+
+        var slots = new FreeBusyFinder(eventManager).findFreeSlots(start.atStartOfDay(), end.plusDays(1).atStartOfDay(),
+                Duration.ofMinutes(minutes), dayStart, dayEnd, count);
+        System.out.println("\n" + "=".repeat(50));
+        if (slots.isEmpty()) {
+            System.out.println("No free slots found.");
+        } else {
+            System.out.println("Free slots of at least " + minutes + " minutes:\n");
+            for (FreeBusyFinder.Slot slot : slots) {
+                System.out.printf("  %s  %s - %s (%d min)\n", slot.getStart().toLocalDate(),
+                                  slot.getStart().toLocalTime(), slot.getEnd().toLocalTime(), slot.getDuration().toMinutes());
+            }
+        }
+        System.out.println("=".repeat(50));
+    }
+
     private void displaySearchResults(java.util.List<Event> results) {
         System.out.println("\n" + "=".repeat(50));
         if (results.isEmpty()) {
@@ -304,6 +344,8 @@ public class CLIMenuApp {
         System.out.println("Recurring Events: " + eventManager.getRecurringEventCount());
         System.out.println("Single Events: " + (eventManager.getTotalEvents() - eventManager.getRecurringEventCount()));
         System.out.println("Busiest Day: " + eventManager.getBusiestDay());
+        int busiestHour = eventManager.statistics().getBusiestHour();
+        System.out.println("Busiest Hour: " + (busiestHour < 0 ? "N/A" : String.format("%02d:00", busiestHour)));
         
         var categoryStats = eventManager.getEventsByCategory();
         if (!categoryStats.isEmpty()) {
@@ -316,6 +358,26 @@ public class CLIMenuApp {
         pressEnterToContinue();
     }
     
+    // Latency and I/O totals of the instrumented operations since start-up (or the last reset)
+    private void metricsView() {
+        System.out.println("\n╔════════════════════════════════════════╗");
+        System.out.println("║         OPERATION METRICS              ║");
+        System.out.println("╚════════════════════════════════════════╝\n");
+
+        if (!Metrics.ENABLED) {
+            System.out.println("Metrics are off (started with -Dcalendar.metrics=false).");
+        } else {
+            System.out.print(Metrics.report());
+            System.out.print("\nReset the counters? (y/N): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                Metrics.resetAll();
+                System.out.println("✅ Counters reset.");
+            }
+        }
+
+        pressEnterToContinue();
+    }
+    
     private void launchGUI() {
         System.out.println("\n🚀 Launching GUI...\n");
         javax.swing.SwingUtilities.invokeLater(() -> new CalenderApp());
@@ -0,0 +1,665 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark suite for the calendar on synthetic data, run for each of
+ * several calendar sizes:
+ *   queries - hasConflict, searchByDateRange, searchByKeyword, getEventsForDate, free/busy
+ *   csv     - FileManager CSV load and save, and the parallel load on 1..cores threads
+ *   render  - CalenderViewCLI month and week views, written to a discarding Writer
+ *   lookups - indexed lookups against the previous linear scans
+ *   storage - binary snapshot against the || CSV
+ *   window  - start-up time and heap of a windowed EventManager over monthly
+ *             partitions against one that loads every month, paging, and the
+ *             partition store's queries with and without its month cache
+ *   metrics - cost of timing one operation, against hasConflict, and of a report
+ *   backup  - full, gzip and incremental backups (1% of events changed), their
+ *             sizes, and restoring a base with its increments
+ *   heap    - heap per event of Event objects with a fields map, of an
+ *             AdditionalFieldManager and of EventColumns, all as read from the
+ *             events file
+ * Results can be exported as JSON in the layout JMH uses for its own
+ * result files, so runs can be compared with the usual JMH tooling. The
+ * core queries, file I/O and month rendering are also JMH benchmarks in
+ * the benchmarks module (benchmarks/pom.xml), over the calendars generated
+ * here.
+ *
+ * Usage: java calenderapp.CalendarBenchmark [--sizes 1000,100000,1000000]
+ *            [--suites queries,csv,render,lookups,storage,window,metrics,backup,heap] [--json results.json]
+ * A single number is still accepted as the only size.
+ */
+public class CalendarBenchmark {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    static final LocalDateTime ORIGIN = LocalDateTime.of(2024, 1, 1, 8, 0);
+    static final int SPAN_DAYS = 730;
+
+    // Keeps results reachable so the JIT cannot drop the measured work
+    private static long sink;
+    private static final List<Result> results = new ArrayList<>();
+    private static int currentSize;
+
+    // One measured benchmark at one calendar size
+    private static class Result {
+        final String name;
+        final int size;
+        final double score;
+        final String unit;
+        final int rounds;
+
+        Result(String name, int size, double score, String unit, int rounds) {
+            this.name = name;
+            this.size = size;
+            this.score = score;
+            this.unit = unit;
+            this.rounds = rounds;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = List.of(1_000, 100_000, 1_000_000);
+        List<String> suites = List.of("queries", "csv", "render", "lookups", "storage", "window", "metrics", "backup", "heap");
+        String json = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = parseSizes(args[++i]);
+                case "--suites" -> suites = List.of(args[++i].split(","));
+                case "--json" -> json = args[++i];
+                default -> sizes = parseSizes(args[i]);
+            }
+        }
+
+        for (int size : sizes) {
+            currentSize = size;
+            if (suites.contains("queries") || suites.contains("csv") || suites.contains("render") || suites.contains("metrics")) {
+                EventManager calendar = generateCalendar(size, 42L);
+                if (suites.contains("queries")) {
+                    System.out.println("\n=== Query benchmarks (" + size + " events) ===");
+                    benchmarkQueries(calendar);
+                }
+                if (suites.contains("csv")) {
+                    System.out.println("\n=== CSV benchmarks (" + size + " events) ===");
+                    benchmarkCsv(calendar.getEvents());
+                }
+                if (suites.contains("render")) {
+                    System.out.println("\n=== Render benchmarks (" + size + " events) ===");
+                    benchmarkRender(calendar);
+                }
+                if (suites.contains("metrics")) {
+                    System.out.println("\n=== Metrics benchmarks (" + size + " events) ===");
+                    benchmarkMetrics(calendar);
+                }
+            }
+            if (suites.contains("lookups") || suites.contains("storage") || suites.contains("window")
+                    || suites.contains("backup") || suites.contains("heap")) {
+                List<Event> events = generateEvents(size, 42L);
+                Map<Integer, AdditionalFieldManager.AdditionalFields> fields = generateFields(events, 42L);
+                if (suites.contains("lookups")) {
+                    System.out.println("\n=== Lookup benchmarks (" + size + " events) ===");
+                    EventManager manager = new EventManager(new ArrayList<>(events), new AdditionalFieldManager(fields));
+                    benchmarkLookups(manager, events, new AdditionalFieldManager(fields));
+                }
+                if (suites.contains("storage")) {
+                    System.out.println("\n=== Storage benchmarks (" + size + " events) ===");
+                    benchmarkStorage(events);
+                }
+                if (suites.contains("window")) {
+                    System.out.println("\n=== Window benchmarks (" + size + " events) ===");
+                    benchmarkWindow(events, fields);
+                }
+                if (suites.contains("backup")) {
+                    System.out.println("\n=== Backup benchmarks (" + size + " events) ===");
+                    benchmarkBackup(events, fields);
+                }
+                if (suites.contains("heap")) {
+                    System.out.println("\n=== Heap benchmarks (" + size + " events) ===");
+                    benchmarkHeap(events, fields);
+                }
+            }
+        }
+        System.out.println("(sink " + sink + ")");
+        if (json != null) {
+            writeJson(new File(json));
+            System.out.println("Results written to " + json);
+        }
+    }
+
+    private static List<Integer> parseSizes(String list) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String size : list.split(",")) {
+            sizes.add(Integer.parseInt(size.trim().replace("_", "")));
+        }
+        return sizes;
+    }
+
+    // ==================== BENCHMARKS ====================
+
+    static void benchmarkQueries(EventManager manager) {
+        Random random = new Random(11);
+        LocalDateTime[] slots = new LocalDateTime[1024];
+        LocalDate[] days = new LocalDate[1024];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = ORIGIN.plusDays(random.nextInt(SPAN_DAYS)).plusMinutes(15L * random.nextInt(48));
+            days[i] = slots[i].toLocalDate();
+        }
+        // The first snapshot read builds the snapshot; keep that out of the measurement
+        manager.getEventsForDate(days[0]);
+
+        measure("hasConflict", 1_000, i -> sink += manager.hasConflict(slots[i & 1023], slots[i & 1023].plusHours(1)) ? 1 : 0);
+        measure("searchByDateRange (7 days)", 1_000, i -> sink += manager.searchByDateRange(days[i & 1023], days[i & 1023].plusDays(6)).size());
+        measure("getEventsForDate", 100_000, i -> sink += manager.getEventsForDate(days[i & 1023]).size());
+        measure("searchByKeyword common", 3, i -> sink += manager.searchByKeyword("review").size());
+        measure("searchByKeyword rare", 1_000, i -> sink += manager.searchByKeyword("room 204").size());
+
+        FreeBusyFinder finder = new FreeBusyFinder(manager);
+        LocalDateTime yearEnd = ORIGIN.plusYears(1);
+        measure("busyIntervals (1 year)", 5, i -> sink += finder.busyIntervals(ORIGIN, yearEnd).size());
+        measure("findFreeSlots 1h top 10 (1 year)", 1_000, i -> sink += finder.findFreeSlots(
+                slots[i & 1023], slots[i & 1023].plusYears(1), Duration.ofHours(1), LocalTime.of(9, 0), LocalTime.of(17, 0), 10).size());
+    }
+
+    // The timer wrapped around every instrumented operation, next to the cheapest operation it wraps
+    static void benchmarkMetrics(EventManager manager) {
+        Metrics.Operation empty = Metrics.operation("CalendarBenchmark.empty");
+        LocalDateTime[] slots = new LocalDateTime[1024];
+        Random random = new Random(11);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = ORIGIN.plusDays(random.nextInt(SPAN_DAYS)).plusMinutes(15L * random.nextInt(48));
+        }
+        manager.hasConflict(slots[0], slots[0].plusHours(1));
+
+        measure("Metrics timer start/stop", 100_000, i -> {
+            Metrics.Timer t = empty.time();
+            t.stop();
+        });
+        measure("hasConflict (timed)", 1_000, i -> sink += manager.hasConflict(slots[i & 1023], slots[i & 1023].plusHours(1)) ? 1 : 0);
+        measure("Metrics.report", 100, i -> sink += Metrics.report().length());
+        sink += empty.getCount();
+    }
+
+    static void benchmarkCsv(List<Event> events) throws IOException {
+        File csv = Files.createTempFile("calendar-bench", ".csv").toFile();
+        try {
+            measure("write CSV", 2, 5, 1, i -> writeCsv(csv, events));
+            measure("read CSV", 2, 5, 1, i -> sink += FileManager.readEventsCsv(csv).size());
+            measure("parse CSV, streamed", 2, 5, 1, i -> sink += parseCsv(csv, 0).size());
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads < cores * 2; threads *= 2) {
+                int parallelism = Math.min(threads, cores);
+                measure("parse CSV, " + parallelism + " thread(s)", 2, 5, 1, i -> sink += parseCsv(csv, parallelism).size());
+            }
+        } finally {
+            Files.deleteIfExists(csv.toPath());
+        }
+    }
+
+    static void benchmarkRender(EventManager manager) {
+        CountingOutputStream rendered = new CountingOutputStream();
+        Writer out = new OutputStreamWriter(rendered);
+        CalenderViewCLI view = new CalenderViewCLI(manager, out);
+        YearMonth[] months = new YearMonth[24];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = YearMonth.from(ORIGIN).plusMonths(i);
+        }
+        measure("displayMonthCalendarView", 200, i -> view.displayMonthCalendarView(months[i % months.length]));
+        measure("displayMonthListView", 200, i -> view.displayMonthListView(months[i % months.length]));
+        measure("displayWeekCalendarView", 1_000, i -> view.displayWeekCalendarView(ORIGIN.toLocalDate().plusWeeks(i % 100)));
+        sink += rendered.count;
+    }
+
+    private static List<Event> parseCsv(File csv, int parallelism) {
+        try {
+            return FileManager.parseEventsCsv(csv, new HashMap<>(), parallelism);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsv(File csv, List<Event> events) {
+        try {
+            FileManager.writeEventsCsv(csv, events);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Discards rendered output, counting bytes so the render cannot be optimized away
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    static void benchmarkLookups(EventManager manager, List<Event> events, AdditionalFieldManager fields) {
+        Random random = new Random(7);
+        int[] ids = new int[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = events.get(random.nextInt(events.size())).getEventId();
+        }
+        int[] seriesIds = events.stream().mapToInt(Event::getSeriesId).filter(s -> s != 0).distinct().limit(256).toArray();
+        if (seriesIds.length == 0) {
+            seriesIds = new int[]{0};
+        }
+        int[] series = seriesIds;
+
+        measure("getEventById linear", 200, i -> sink += linearGetById(events, ids[i & 1023]).getEventId());
+        measure("getEventById indexed", 200_000, i -> sink += manager.getEventById(ids[i & 1023]).getEventId());
+
+        measure("series lookup linear", 50, i -> sink += linearSeries(events, series[i % series.length]).size());
+        measure("series lookup indexed", 200_000, i -> sink += manager.getSeries(series[i % series.length]).size());
+
+        measure("searchByKeyword linear", 3, i -> sink += linearKeywordSearch(events, fields, "review").size());
+        measure("searchByKeyword indexed", 3, i -> sink += manager.searchByKeyword("review").size());
+        measure("searchByKeyword rare indexed", 1000, i -> sink += manager.searchByKeyword("room 204").size());
+        measure("searchByAllKeywords indexed", 1000, i -> sink += manager.searchByAllKeywords("design room 204").size());
+    }
+
+    static void benchmarkStorage(List<Event> events) throws IOException {
+        Path dir = Files.createTempDirectory("calendar-bench");
+        File csv = dir.resolve("events.csv").toFile();
+        Path snapshot = dir.resolve("events.bin");
+        try {
+            FileManager.writeEventsCsv(csv, events);
+            BinarySnapshot.write(events, snapshot);
+            System.out.printf("%-32s %14d bytes%n", "CSV file size", csv.length());
+            System.out.printf("%-32s %14d bytes%n", "Binary snapshot size", Files.size(snapshot));
+
+            measure("load CSV", 2, 5, 1, i -> sink += FileManager.readEventsCsv(csv).size());
+            measure("load binary snapshot", 2, 5, 1, i -> sink += readSnapshot(snapshot).size());
+            measureHeap("heap after CSV load", () -> FileManager.readEventsCsv(csv));
+            measureHeap("heap after binary load", () -> readSnapshot(snapshot));
+        } finally {
+            Files.deleteIfExists(csv.toPath());
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    // The generated events span 2024 and 2025; the window is the first quarter of 2025
+    static void benchmarkWindow(List<Event> events, Map<Integer, AdditionalFieldManager.AdditionalFields> fields)
+            throws IOException {
+        Path dir = Files.createTempDirectory("calendar-bench");
+        YearMonth first = YearMonth.of(2025, 1);
+        YearMonth last = YearMonth.of(2025, 3);
+        try {
+            PartitionedEventStore store = new PartitionedEventStore(dir.toFile(), false);
+            store.replaceAll(new BinarySnapshot.Contents(events, List.of(), fields));
+            store.close();
+            int inWindow = openPartitions(dir, first, last).getEvents().size();
+
+            measure("start-up, all months", 1, 3, 1, i -> sink += openPartitions(dir, null, null).getEvents().size());
+            measure("start-up, 3-month window", 1, 3, 1, i -> sink += openPartitions(dir, first, last).getEvents().size());
+            measureHeap("heap, all months", () -> openPartitions(dir, null, null), events.size());
+            measureHeap("heap, 3-month window", () -> openPartitions(dir, first, last), inWindow);
+
+            // 24 months visited in turn, so every query pages a month in and (past six) one out
+            EventManager windowed = openPartitions(dir, first, last);
+            LocalDate origin = LocalDate.of(2024, 1, 15);
+            measure("getEventsForDate, paging", 1, 3, 24, i -> sink += windowed.getEventsForDate(origin.plusMonths(i)).size());
+            measure("getEventsForDate, in window", 1, 3, 24, i -> sink += windowed.getEventsForDate(first.atDay(1 + i)).size());
+
+            // The same queries against a store that rereads every month and one that keeps them as columns
+            PartitionedEventStore uncached = new PartitionedEventStore(dir.toFile(), false, 0);
+            PartitionedEventStore cached = new PartitionedEventStore(dir.toFile(), false);
+            LocalDateTime weekStart = origin.atStartOfDay();
+            for (PartitionedEventStore partitions : List.of(uncached, cached)) {
+                String kind = partitions == cached ? "cached" : "uncached";
+                measure("store findEvents, " + kind, 1, 3, 24, i -> sink += find(
+                        () -> partitions.findEvents(weekStart.plusMonths(i), weekStart.plusMonths(i).plusWeeks(1))).size());
+                measure("store loadMonth, " + kind, 1, 3, 24,
+                        i -> sink += find(() -> partitions.loadMonth(YearMonth.from(origin).plusMonths(i)).events).size());
+                measure("store findByKeyword, " + kind, 1, 3, 1, i -> sink += find(() -> partitions.findByKeyword("review")).size());
+                partitions.close();
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Full backups against increments after 1% of the events changed, and the restore of a chain
+    static void benchmarkBackup(List<Event> generated, Map<Integer, AdditionalFieldManager.AdditionalFields> fields)
+            throws IOException {
+        Path dir = Files.createTempDirectory("calendar-bench");
+        // Copies, since the increments edit them
+        List<Event> events = new ArrayList<>(generated.size());
+        for (Event e : generated) {
+            events.add(e.copy());
+        }
+        Path full = dir.resolve("full.csv");
+        Path compressed = dir.resolve("full.csv.gz");
+        Path chain = dir.resolve("chain.csv.gz");
+        try {
+            measure("backup, full", 1, 3, 1, i -> backup(() -> BackupChain.writeBase(full, events, fields)));
+            measure("backup, full gzip", 1, 3, 1, i -> backup(() -> BackupChain.writeBase(compressed, events, fields)));
+            measure("backup, full copy", 1, 3, 1, i -> backup(() -> AtomicFile.copy(full, dir.resolve("copy.csv"))));
+
+            backup(() -> BackupChain.writeBase(chain, events, fields));
+            Random random = new Random(17);
+            int changed = Math.max(1, events.size() / 100);
+            measure("backup, incremental (1%)", 1, 5, 1, i -> {
+                for (int j = 0; j < changed; j++) {
+                    Event e = events.get(random.nextInt(events.size()));
+                    e.setTitle(e.getTitle() + "*");
+                }
+                backup(() -> BackupChain.writeIncrement(chain, events, fields));
+            });
+            System.out.printf("%-32s %14d bytes%n", "full backup size", Files.size(full));
+            System.out.printf("%-32s %14d bytes%n", "full gzip backup size", Files.size(compressed));
+            System.out.printf("%-32s %14d bytes%n", "incremental backup size", Files.size(BackupChain.increment(chain, 1)));
+
+            int increments = BackupChain.increments(chain);
+            measure("restore, base + " + increments + " increments", 1, 3, 1,
+                    i -> backup(() -> sink += BackupChain.read(chain, increments, new HashMap<>()).size()));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private interface BackupStep {
+        void run() throws IOException;
+    }
+
+    private static void backup(BackupStep step) {
+        try {
+            step.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Heap per event of each in-memory form, loaded from the events file so every event has its own
+    // times and strings as it would after start-up
+    static void benchmarkHeap(List<Event> events, Map<Integer, AdditionalFieldManager.AdditionalFields> fields)
+            throws IOException {
+        Path dir = Files.createTempDirectory("calendar-bench");
+        File csv = dir.resolve("events.csv").toFile();
+        try {
+            FileManager.writeEventsCsv(csv, events, fields);
+            measureHeap("heap, Event objects + fields", () -> readContents(csv), events.size());
+            measureHeap("heap, AdditionalFieldManager", () -> new AdditionalFieldManager(readContents(csv).fields),
+                    events.size());
+            measureHeap("heap, EventColumns", () -> {
+                BinarySnapshot.Contents contents = readContents(csv);
+                return EventColumns.of(contents.events, contents.fields);
+            }, events.size());
+        } finally {
+            Files.deleteIfExists(csv.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static BinarySnapshot.Contents readContents(File csv) {
+        try {
+            Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+            List<Event> events = FileManager.parseEventsCsv(csv, fields);
+            return new BinarySnapshot.Contents(events, List.of(), fields);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface StoreQuery {
+        List<Event> run() throws IOException;
+    }
+
+    private static List<Event> find(StoreQuery query) {
+        try {
+            return query.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Manager over the partitions in dir: windowed (first..last, six cached months) or, with nulls, all months
+    private static EventManager openPartitions(Path dir, YearMonth first, YearMonth last) {
+        PartitionedEventStore store = new PartitionedEventStore(dir.toFile(), false);
+        return first == null ? new EventManager(store) : new EventManager(store, first, last, 6);
+    }
+
+    private static List<Event> readSnapshot(Path snapshot) {
+        try {
+            return BinarySnapshot.read(snapshot);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Previous EventManager behaviour, kept here as the comparison baseline
+    private static Event linearGetById(List<Event> events, int id) {
+        return events.stream().filter(e -> e.getEventId() == id).findFirst().orElse(null);
+    }
+
+    private static List<Event> linearSeries(List<Event> events, int seriesId) {
+        List<Event> results = new ArrayList<>();
+        for (Event e : events) {
+            if (e.getSeriesId() == seriesId) {
+                results.add(e);
+            }
+        }
+        return results;
+    }
+
+    private static List<Event> linearKeywordSearch(List<Event> events, AdditionalFieldManager fields, String keyword) {
+        List<Event> results = new ArrayList<>();
+        String lowerKeyword = keyword.toLowerCase();
+        for (Event e : events) {
+            AdditionalFieldManager.AdditionalFields f = fields.getFields(e.getEventId());
+            if (e.getTitle().toLowerCase().contains(lowerKeyword) ||
+                e.getDescription().toLowerCase().contains(lowerKeyword) ||
+                (f != null && (f.location.toLowerCase().contains(lowerKeyword) ||
+                               f.category.toLowerCase().contains(lowerKeyword) ||
+                               f.attendees.toLowerCase().contains(lowerKeyword)))) {
+                results.add(e);
+            }
+        }
+        return results;
+    }
+
+    // ==================== HARNESS ====================
+
+    // Runs op for the given number of operations per round and prints the mean time per operation
+    static double measure(String name, int opsPerRound, IntConsumer op) {
+        return measure(name, WARMUP_ROUNDS, MEASURED_ROUNDS, opsPerRound, op);
+    }
+
+    static double measure(String name, int warmupRounds, int measuredRounds, int opsPerRound, IntConsumer op) {
+        double nsPerOp = time(warmupRounds, measuredRounds, opsPerRound, op);
+        report(name, nsPerOp, "ns/op", measuredRounds);
+        return nsPerOp;
+    }
+
+    private static double time(int warmupRounds, int measuredRounds, int opsPerRound, IntConsumer op) {
+        for (int round = 0; round < warmupRounds; round++) {
+            for (int i = 0; i < opsPerRound; i++) {
+                op.accept(i);
+            }
+        }
+        long total = 0;
+        for (int round = 0; round < measuredRounds; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < opsPerRound; i++) {
+                op.accept(i);
+            }
+            total += System.nanoTime() - begin;
+        }
+        return (double) total / ((long) measuredRounds * opsPerRound);
+    }
+
+    private static void report(String name, double score, String unit, int rounds) {
+        System.out.printf("%-32s %14.1f %s%n", name, score, unit);
+        results.add(new Result(name, currentSize, score, unit, rounds));
+    }
+
+    // Approximate heap retained by the loaded result (used heap after GC, before and after)
+    static long measureHeap(String name, Supplier<List<Event>> loader) {
+        return measureHeap(name, loader, List::size);
+    }
+
+    // Same for any object holding the given number of events, such as a whole EventManager
+    static long measureHeap(String name, Supplier<?> loader, int events) {
+        return measureHeap(name, loader, loaded -> events);
+    }
+
+    private static <T> long measureHeap(String name, Supplier<T> loader, ToIntFunction<T> events) {
+        long before = usedHeapAfterGc();
+        T loaded = loader.get();
+        long retained = usedHeapAfterGc() - before;
+        int count = events.applyAsInt(loaded);
+        sink += count;
+        System.out.printf("%-32s %14d bytes (%d bytes/event)%n", name, retained, count == 0 ? 0 : retained / count);
+        results.add(new Result(name, currentSize, retained, "bytes", 1));
+        return retained;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // JMH-style result file: one entry per benchmark and size
+    static void writeJson(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.println("    {");
+                out.println("        \"benchmark\" : \"calenderapp.CalendarBenchmark." + jsonEscape(r.name) + "\",");
+                out.println("        \"mode\" : \"" + (r.unit.equals("bytes") ? "ss" : "avgt") + "\",");
+                out.println("        \"measurementIterations\" : " + r.rounds + ",");
+                out.println("        \"params\" : {");
+                out.println("            \"events\" : \"" + r.size + "\"");
+                out.println("        },");
+                out.println("        \"primaryMetric\" : {");
+                out.println("            \"score\" : " + String.format(Locale.ROOT, "%.3f", r.score) + ",");
+                out.println("            \"scoreUnit\" : \"" + r.unit + "\"");
+                out.println("        }");
+                out.println(i + 1 < results.size() ? "    }," : "    }");
+            }
+            out.println("]");
+        }
+    }
+
+    private static String jsonEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // ==================== DATA GENERATION ====================
+
+    // In-memory calendar of count events: about 70% single events, the rest daily/weekly/monthly rules
+    static EventManager generateCalendar(int count, long seed) {
+        Random random = new Random(seed);
+        String[] titles = {"Standup", "Design review", "1:1", "Lecture", "Lab session", "Planning", "Lunch"};
+        String[] types = {"DAILY", "WEEKLY", "MONTHLY"};
+        List<Event> singles = new ArrayList<>();
+        List<Event> templates = new ArrayList<>();
+        int total = 0;
+        while (total < count) {
+            LocalDateTime start = ORIGIN.plusDays(random.nextInt(SPAN_DAYS)).plusMinutes(15L * random.nextInt(40));
+            LocalDateTime end = start.plusMinutes(15L * (1 + random.nextInt(8)));
+            String title = titles[random.nextInt(titles.length)];
+            if (random.nextInt(10) < 3) {
+                Event template = new Event(0, title, "Recurring " + title, start, end);
+                template.setRecurring(true);
+                template.setRecurrenceType(types[random.nextInt(types.length)]);
+                template.setRecurrenceCount(Math.min(count - total, 5 + random.nextInt(26)));
+                templates.add(template);
+                total += template.getRecurrenceCount();
+            } else {
+                singles.add(new Event(singles.size() + 1, title, "Generated event", start, end));
+                total++;
+            }
+        }
+        EventManager manager = new EventManager(singles, new AdditionalFieldManager(generateFields(singles, seed)));
+        for (Event template : templates) {
+            manager.addRecurringEvent(template);
+        }
+        return manager;
+    }
+
+
+    // Synthetic calendar: mostly single events plus daily/weekly/monthly series
+    static List<Event> generateEvents(int count, long seed) {
+        Random random = new Random(seed);
+        String[] titles = {"Standup", "Design review", "1:1", "Lecture", "Lab session", "Planning", "Lunch"};
+        String[] types = {"DAILY", "WEEKLY", "MONTHLY"};
+        LocalDateTime origin = LocalDateTime.of(2024, 1, 1, 8, 0);
+        List<Event> events = new ArrayList<>(count);
+        int id = 1;
+        while (events.size() < count) {
+            LocalDateTime start = origin.plusDays(random.nextInt(730)).plusMinutes(15L * random.nextInt(40));
+            LocalDateTime end = start.plusMinutes(15L * (1 + random.nextInt(8)));
+            String title = titles[random.nextInt(titles.length)];
+            if (random.nextInt(10) < 3) {
+                String type = types[random.nextInt(types.length)];
+                int occurrences = Math.min(count - events.size(), 5 + random.nextInt(26));
+                int seriesId = id;
+                for (int i = 0; i < occurrences; i++) {
+                    Event e = new Event(id++, title, "Series " + seriesId, start, end);
+                    e.setRecurring(true);
+                    e.setRecurrenceType(type);
+                    e.setRecurrenceCount(occurrences);
+                    e.setSeriesId(seriesId);
+                    events.add(e);
+                    long minutes = e.getDurationMinutes();
+                    start = switch (type) {
+                        case "DAILY" -> start.plusDays(1);
+                        case "WEEKLY" -> start.plusWeeks(1);
+                        default -> start.plusMonths(1);
+                    };
+                    end = start.plusMinutes(minutes);
+                }
+            } else {
+                events.add(new Event(id++, title, "Generated event", start, end));
+            }
+        }
+        return events;
+    }
+
+    static Map<Integer, AdditionalFieldManager.AdditionalFields> generateFields(List<Event> events, long seed) {
+        Random random = new Random(seed);
+        String[] locations = {"Room 101", "Room 204", "Library", "Online", "Cafe"};
+        String[] categories = {"Work", "Study", "Personal", "Health"};
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        for (Event e : events) {
+            if (random.nextInt(4) == 0) {
+                fields.put(e.getEventId(), new AdditionalFieldManager.AdditionalFields(
+                        locations[random.nextInt(locations.length)],
+                        categories[random.nextInt(categories.length)],
+                        ""));
+            }
+        }
+        return fields;
+    }
+}
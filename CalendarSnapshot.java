@@ -0,0 +1,422 @@
+package calenderapp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Immutable, versioned view of every event (rule occurrences expanded),
+ * partitioned by the day of each event's start and grouped by month.
+ * EventManager publishes a new snapshot after each change by rebuilding only
+ * the days that change touched; untouched months, day lists and id-table
+ * chunks are shared with the previous version, so a publish costs about
+ * the number of months plus the events on the touched days. Snapshots hold
+ * private copies of the events, so a reader can keep using one while
+ * writers carry on. getEvents(), window(), days() and overlapping() are
+ * read-only views over the day lists and never copy events. Each month also
+ * records, per day, the latest end and longest duration of the events
+ * starting that day, so overlap checks skip the days and months whose
+ * events all end before the checked time, however long other events are.
+ */
+public final class CalendarSnapshot {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    static final CalendarSnapshot EMPTY = new CalendarSnapshot(0, new TreeMap<>(), new TreeMap<>(), new Event[0][], 0, 0);
+    private static final NavigableMap<LocalDate, List<Event>> NO_DAYS = Collections.emptyNavigableMap();
+
+    private final long version;
+    // Day lists are immutable and ordered by start, then id; a month map is never modified once published
+    private final NavigableMap<YearMonth, NavigableMap<LocalDate, List<Event>>> months;
+    // Reach of the events of each month in months; never modified once published
+    private final NavigableMap<YearMonth, Reach> reaches;
+    // Events by id in chunks of CHUNK_SIZE, copied on write
+    private final Event[][] idChunks;
+    private final int size;
+    // Longest duration of any event, so overlap scans know how far back to look
+    private final long maxDurationMinutes;
+    // Built on first use; a race only builds it twice
+    private DayRun allEvents;
+
+    // Latest end (UTC epoch second, rounded up) and longest duration in minutes of the events starting on
+    // each day of a month, indexed by day of month, and the same over the whole month
+    private static final class Reach {
+        final long[] dayEnd;
+        final long[] dayDuration;
+        long end = Long.MIN_VALUE;
+        long duration;
+
+        Reach() {
+            dayEnd = new long[32];
+            dayDuration = new long[32];
+            Arrays.fill(dayEnd, Long.MIN_VALUE);
+        }
+
+        Reach(Reach other) {
+            dayEnd = other.dayEnd.clone();
+            dayDuration = other.dayDuration.clone();
+        }
+
+        void setDay(int dayOfMonth, List<Event> events) {
+            long latest = Long.MIN_VALUE;
+            long longest = 0;
+            for (Event e : events) {
+                latest = Math.max(latest, endSecond(e.getEnd()));
+                longest = Math.max(longest, e.getDurationMinutes());
+            }
+            dayEnd[dayOfMonth] = latest;
+            dayDuration[dayOfMonth] = longest;
+        }
+
+        Reach finish() {
+            end = Long.MIN_VALUE;
+            duration = 0;
+            for (int day = 1; day < dayEnd.length; day++) {
+                end = Math.max(end, dayEnd[day]);
+                duration = Math.max(duration, dayDuration[day]);
+            }
+            return this;
+        }
+
+        private static long endSecond(LocalDateTime end) {
+            return end.toEpochSecond(ZoneOffset.UTC) + (end.getNano() > 0 ? 1 : 0);
+        }
+    }
+
+    private CalendarSnapshot(long version, NavigableMap<YearMonth, NavigableMap<LocalDate, List<Event>>> months,
+                             NavigableMap<YearMonth, Reach> reaches, Event[][] idChunks, int size, long maxDurationMinutes) {
+        this.version = version;
+        this.months = months;
+        this.reaches = reaches;
+        this.idChunks = idChunks;
+        this.size = size;
+        this.maxDurationMinutes = maxDurationMinutes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Event getEventById(int id) {
+        int chunk = id >>> CHUNK_BITS;
+        return id < 0 || chunk >= idChunks.length || idChunks[chunk] == null ? null : idChunks[chunk][id & (CHUNK_SIZE - 1)];
+    }
+
+    // Events starting on date, ordered by start
+    public List<Event> getEventsForDate(LocalDate date) {
+        List<Event> day = months.getOrDefault(YearMonth.from(date), NO_DAYS).get(date);
+        return day == null ? List.of() : day;
+    }
+
+    // Events starting on any day in [from, to], ordered by start, as a new modifiable list
+    public List<Event> between(LocalDate from, LocalDate to) {
+        return new ArrayList<>(window(from, to));
+    }
+
+    // Read-only view of the events starting on any day in [from, to], ordered by start
+    public List<Event> window(LocalDate from, LocalDate to) {
+        return new DayRun(days(from, to));
+    }
+
+    // Read-only view of the days in [from, to] that have events, each list ordered by start
+    public NavigableMap<LocalDate, List<Event>> days(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return Collections.emptyNavigableMap();
+        }
+        NavigableMap<YearMonth, NavigableMap<LocalDate, List<Event>>> span =
+                months.subMap(YearMonth.from(from), true, YearMonth.from(to), true);
+        if (span.size() == 1) {
+            return span.firstEntry().getValue().subMap(from, true, to, true);
+        }
+        // Several months: one map entry per day, the day lists themselves are shared
+        NavigableMap<LocalDate, List<Event>> days = new TreeMap<>();
+        for (NavigableMap<LocalDate, List<Event>> month : span.values()) {
+            days.putAll(month.subMap(from, true, to, true));
+        }
+        return Collections.unmodifiableNavigableMap(days);
+    }
+
+    // True if any event other than excludeId overlaps [start, end)
+    public boolean hasConflict(LocalDateTime start, LocalDateTime end, int excludeId) {
+        return !visitDays(start, end, (date, day) -> {
+            for (Event e : day) {
+                if (!e.getStart().isBefore(end)) {
+                    break;
+                }
+                if (e.getEnd().isAfter(start) && e.getEventId() != excludeId) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    // Read-only view, ordered by start, of the days that may hold events overlapping [start, end): every
+    // day from start's through end's, and the earlier days with an event still running at start
+    public List<Event> overlapping(LocalDateTime start, LocalDateTime end) {
+        List<LocalDate> dates = new ArrayList<>();
+        List<List<Event>> days = new ArrayList<>();
+        visitDays(start, end, (date, day) -> {
+            dates.add(date);
+            days.add(day);
+            return true;
+        });
+        return new DayRun(dates, days);
+    }
+
+    // Pass those days to visitor in date order, skipping whole months where their reach allows; false
+    // if the visitor stopped
+    private boolean visitDays(LocalDateTime start, LocalDateTime end, BiPredicate<LocalDate, List<Event>> visitor) {
+        LocalDate from = start.minusMinutes(maxDurationMinutes + 1).toLocalDate();
+        LocalDate first = start.toLocalDate();
+        LocalDate to = end.toLocalDate();
+        if (to.isBefore(from)) {
+            return true;
+        }
+        long startSecond = start.toEpochSecond(ZoneOffset.UTC);
+        YearMonth firstMonth = YearMonth.from(first);
+        for (Map.Entry<YearMonth, NavigableMap<LocalDate, List<Event>>> month :
+                months.subMap(YearMonth.from(from), true, YearMonth.from(to), true).entrySet()) {
+            Reach reach = reaches.get(month.getKey());
+            if (month.getKey().isBefore(firstMonth) && reach.end <= startSecond) {
+                continue;
+            }
+            for (Map.Entry<LocalDate, List<Event>> day : month.getValue().subMap(from, true, to, true).entrySet()) {
+                LocalDate date = day.getKey();
+                if (date.isBefore(first) && reach.dayEnd[date.getDayOfMonth()] <= startSecond) {
+                    continue;
+                }
+                if (!visitor.test(date, day.getValue())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Read-only view of all events ordered by start
+    public List<Event> getEvents() {
+        return allEvents();
+    }
+
+    // Position in getEvents() of the first event starting on or after date
+    public int indexOf(LocalDate date) {
+        return allEvents().startOf(date);
+    }
+
+    private DayRun allEvents() {
+        DayRun all = allEvents;
+        if (all == null) {
+            List<LocalDate> dates = new ArrayList<>();
+            List<List<Event>> days = new ArrayList<>();
+            for (NavigableMap<LocalDate, List<Event>> month : months.values()) {
+                dates.addAll(month.keySet());
+                days.addAll(month.values());
+            }
+            all = new DayRun(dates, days);
+            allEvents = all;
+        }
+        return all;
+    }
+
+    // Consecutive day lists seen as one list; only the per-day offsets are allocated
+    private static class DayRun extends AbstractList<Event> implements RandomAccess {
+        private final LocalDate[] dates;
+        private final List<Event>[] days;
+        private final int[] offsets;
+
+        DayRun(SortedMap<LocalDate, List<Event>> dayLists) {
+            this(dayLists.keySet(), dayLists.values());
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        DayRun(Collection<LocalDate> dayDates, Collection<List<Event>> dayLists) {
+            dates = dayDates.toArray(new LocalDate[0]);
+            days = dayLists.toArray(new List[0]);
+            offsets = new int[days.length + 1];
+            for (int i = 0; i < days.length; i++) {
+                offsets[i + 1] = offsets[i] + days[i].size();
+            }
+        }
+
+        @Override
+        public Event get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            // Stored days are never empty, so the offsets strictly increase
+            int day = Arrays.binarySearch(offsets, index);
+            day = day >= 0 ? day : -day - 2;
+            return days[day].get(index - offsets[day]);
+        }
+
+        @Override
+        public int size() {
+            return offsets[days.length];
+        }
+
+        // Position of the first event starting on or after date
+        int startOf(LocalDate date) {
+            int day = Arrays.binarySearch(dates, date);
+            return offsets[day >= 0 ? day : -day - 1];
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            return new Iterator<>() {
+                private int day;
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    while (day < days.length && index >= days[day].size()) {
+                        day++;
+                        index = 0;
+                    }
+                    return day < days.length;
+                }
+
+                @Override
+                public Event next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return days[day].get(index++);
+                }
+            };
+        }
+    }
+
+    // ==================== PUBLISHING ====================
+
+    // Every day that currently holds events
+    List<LocalDate> getDays() {
+        List<LocalDate> days = new ArrayList<>();
+        for (NavigableMap<LocalDate, List<Event>> month : months.values()) {
+            days.addAll(month.keySet());
+        }
+        return days;
+    }
+
+    // A new version with the given days replaced; each list must be in start order. Events whose
+    // content is unchanged keep their previous copy, so only changed ids touch the id table.
+    CalendarSnapshot withDays(Map<LocalDate, List<Event>> replaced) {
+        Builder b = new Builder(this);
+        for (Map.Entry<LocalDate, List<Event>> entry : replaced.entrySet()) {
+            b.replaceDay(entry.getKey(), entry.getValue());
+        }
+        return b.build();
+    }
+
+    private static boolean sameContent(Event a, Event b) {
+        return a.getEventId() == b.getEventId() &&
+               a.getStart().equals(b.getStart()) && a.getEnd().equals(b.getEnd()) &&
+               a.getTitle().equals(b.getTitle()) && a.getDescription().equals(b.getDescription()) &&
+               a.isRecurring() == b.isRecurring() && Objects.equals(a.getRecurrenceType(), b.getRecurrenceType()) &&
+               a.getRecurrenceCount() == b.getRecurrenceCount() && a.getSeriesId() == b.getSeriesId() &&
+               a.getReminderMinutes() == b.getReminderMinutes();
+    }
+
+    // Copy-on-write state for one publish: each month map and id chunk is copied at most once
+    private static class Builder {
+        private final CalendarSnapshot base;
+        private final NavigableMap<YearMonth, NavigableMap<LocalDate, List<Event>>> months;
+        private final Map<YearMonth, NavigableMap<LocalDate, List<Event>>> copiedMonths = new HashMap<>();
+        private final NavigableMap<YearMonth, Reach> reaches;
+        private final Map<YearMonth, Reach> copiedReaches = new HashMap<>();
+        private Event[][] chunks;
+        private boolean[] copiedChunks;
+        private int size;
+
+        Builder(CalendarSnapshot base) {
+            this.base = base;
+            this.months = new TreeMap<>(base.months);
+            this.reaches = new TreeMap<>(base.reaches);
+            this.chunks = base.idChunks.clone();
+            this.copiedChunks = new boolean[chunks.length];
+            this.size = base.size;
+        }
+
+        void replaceDay(LocalDate date, List<Event> events) {
+            NavigableMap<LocalDate, List<Event>> month = copiedMonths.computeIfAbsent(YearMonth.from(date), key -> {
+                NavigableMap<LocalDate, List<Event>> existing = months.get(key);
+                return existing == null ? new TreeMap<>() : new TreeMap<>(existing);
+            });
+            List<Event> old = month.remove(date);
+            IntHashMap<Event> previous = new IntHashMap<>(old == null ? 0 : old.size());
+            if (old != null) {
+                size -= old.size();
+                for (Event e : old) {
+                    previous.put(e.getEventId(), e);
+                }
+            }
+
+            Event[] day = new Event[events.size()];
+            for (int i = 0; i < day.length; i++) {
+                Event e = events.get(i);
+                Event prior = previous.remove(e.getEventId());
+                if (prior != null && sameContent(prior, e)) {
+                    day[i] = prior;
+                } else {
+                    day[i] = e.copy();
+                    setSlot(e.getEventId(), day[i], null);
+                }
+            }
+            // Events that left the day; the id may already point at a new copy on another day
+            previous.forEach((id, e) -> setSlot(id, null, e));
+
+            if (day.length > 0) {
+                month.put(date, List.of(day));
+                size += day.length;
+            }
+            copiedReaches.computeIfAbsent(YearMonth.from(date), key -> {
+                Reach existing = reaches.get(key);
+                return existing == null ? new Reach() : new Reach(existing);
+            }).setDay(date.getDayOfMonth(), events);
+        }
+
+        // Point id at value, unless expected is given and the slot no longer holds it
+        private void setSlot(int id, Event value, Event expected) {
+            int chunk = id >>> CHUNK_BITS;
+            int slot = id & (CHUNK_SIZE - 1);
+            if (expected != null && (chunk >= chunks.length || chunks[chunk] == null || chunks[chunk][slot] != expected)) {
+                return;
+            }
+            if (chunk >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+                copiedChunks = Arrays.copyOf(copiedChunks, chunks.length);
+            }
+            if (!copiedChunks[chunk]) {
+                chunks[chunk] = chunks[chunk] == null ? new Event[CHUNK_SIZE] : chunks[chunk].clone();
+                copiedChunks[chunk] = true;
+            }
+            chunks[chunk][slot] = value;
+        }
+
+        CalendarSnapshot build() {
+            for (Map.Entry<YearMonth, NavigableMap<LocalDate, List<Event>>> entry : copiedMonths.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    months.remove(entry.getKey());
+                    reaches.remove(entry.getKey());
+                } else {
+                    months.put(entry.getKey(), Collections.unmodifiableNavigableMap(entry.getValue()));
+                    reaches.put(entry.getKey(), copiedReaches.get(entry.getKey()).finish());
+                }
+            }
+            // Exact again after the longest event is gone, at a cost of one step per month
+            long maxDuration = 0;
+            for (Reach reach : reaches.values()) {
+                maxDuration = Math.max(maxDuration, reach.duration);
+            }
+            return new CalendarSnapshot(base.version + 1, Collections.unmodifiableNavigableMap(months), reaches,
+                                        chunks, size, maxDuration);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package calenderapp;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Running aggregates over every event of a calendar (rule occurrences
+ * included): totals, recurring count, and counts by day of week, month,
+ * start hour and category. EventManager applies each published change as
+ * a diff of the rebuilt days, so reads never rescan the calendar and an
+ * update costs only the events on the changed days. The category of each
+ * counted event is remembered, so a category edit or a deleted event
+ * takes back exactly what was added for it.
+ */
+public class CalendarStats {
+    private int total;
+    private int recurring;
+    private final int[] byDayOfWeek = new int[7];
+    private final int[] byHour = new int[24];
+    private final TreeMap<YearMonth, Integer> byMonth = new TreeMap<>();
+    private final Map<String, Integer> byCategory = new HashMap<>();
+    // Category counted for each event that has one
+    private final IntHashMap<String> countedCategory = new IntHashMap<>();
+    // Category of an event id, or null/empty if it has none
+    private final IntFunction<String> categories;
+
+    CalendarStats(IntFunction<String> categories) {
+        this.categories = categories;
+    }
+
+    // Full recount from scratch, for checking the running counters
+    static CalendarStats recount(Iterable<Event> events, IntFunction<String> categories) {
+        CalendarStats stats = new CalendarStats(categories);
+        for (Event e : events) {
+            stats.add(e);
+        }
+        return stats;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getRecurringCount() {
+        return recurring;
+    }
+
+    public int getCount(DayOfWeek day) {
+        return byDayOfWeek[day.getValue() - 1];
+    }
+
+    // Events starting in each hour of the day, index 0-23
+    public int[] getHourHistogram() {
+        return byHour.clone();
+    }
+
+    // Events starting in each month that has any
+    public NavigableMap<YearMonth, Integer> getMonthHistogram() {
+        return Collections.unmodifiableNavigableMap(new TreeMap<>(byMonth));
+    }
+
+    public Map<String, Integer> getCategoryCounts() {
+        return new HashMap<>(byCategory);
+    }
+
+    // Day of week with the most events (the earliest in the week on a tie), or null if there are none
+    public DayOfWeek getBusiestDay() {
+        int best = -1;
+        for (int i = 0; i < byDayOfWeek.length; i++) {
+            if (byDayOfWeek[i] > 0 && (best < 0 || byDayOfWeek[i] > byDayOfWeek[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? null : DayOfWeek.of(best + 1);
+    }
+
+    // Hour of day with the most events, or -1 if there are none
+    public int getBusiestHour() {
+        int best = -1;
+        for (int i = 0; i < byHour.length; i++) {
+            if (byHour[i] > 0 && (best < 0 || byHour[i] > byHour[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Differences between these counters and other's, one line each; empty if they agree
+    public List<String> compareTo(CalendarStats other) {
+        List<String> diffs = new ArrayList<>();
+        check(diffs, "total", total, other.total);
+        check(diffs, "recurring", recurring, other.recurring);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            check(diffs, day.toString(), getCount(day), other.getCount(day));
+        }
+        for (int h = 0; h < byHour.length; h++) {
+            check(diffs, "hour " + h, byHour[h], other.byHour[h]);
+        }
+        Set<YearMonth> months = new TreeSet<>(byMonth.keySet());
+        months.addAll(other.byMonth.keySet());
+        for (YearMonth month : months) {
+            check(diffs, month.toString(), byMonth.getOrDefault(month, 0), other.byMonth.getOrDefault(month, 0));
+        }
+        Set<String> names = new TreeSet<>(byCategory.keySet());
+        names.addAll(other.byCategory.keySet());
+        for (String name : names) {
+            check(diffs, "category " + name, byCategory.getOrDefault(name, 0), other.byCategory.getOrDefault(name, 0));
+        }
+        return diffs;
+    }
+
+    private static void check(List<String> diffs, String what, int cached, int actual) {
+        if (cached != actual) {
+            diffs.add(what + ": cached " + cached + ", actual " + actual);
+        }
+    }
+
+    // ==================== UPDATES ====================
+
+    // Apply a publish: the given days went from their events in before to those in after
+    void update(CalendarSnapshot before, CalendarSnapshot after, Collection<LocalDate> days) {
+        // Every removal first, so an event that moved between two changed days is counted once
+        for (LocalDate day : days) {
+            for (Event e : before.getEventsForDate(day)) {
+                remove(e);
+            }
+        }
+        for (LocalDate day : days) {
+            for (Event e : after.getEventsForDate(day)) {
+                add(e);
+            }
+        }
+    }
+
+    // The category of eventId changed; counted only if the event is in the published calendar
+    void categoryChanged(int eventId, boolean present) {
+        String old = countedCategory.remove(eventId);
+        if (old != null) {
+            decrement(byCategory, old);
+        }
+        if (present) {
+            countCategory(eventId);
+        }
+    }
+
+    // Fields were reloaded wholesale: count the categories of the given events again
+    void recountCategories(Iterable<Event> events) {
+        countedCategory.clear();
+        byCategory.clear();
+        for (Event e : events) {
+            countCategory(e.getEventId());
+        }
+    }
+
+    private void add(Event e) {
+        total++;
+        if (e.isRecurring()) {
+            recurring++;
+        }
+        byDayOfWeek[e.getStart().getDayOfWeek().getValue() - 1]++;
+        byHour[e.getStart().getHour()]++;
+        byMonth.merge(YearMonth.from(e.getStart()), 1, Integer::sum);
+        categoryChanged(e.getEventId(), true);
+    }
+
+    private void remove(Event e) {
+        total--;
+        if (e.isRecurring()) {
+            recurring--;
+        }
+        byDayOfWeek[e.getStart().getDayOfWeek().getValue() - 1]--;
+        byHour[e.getStart().getHour()]--;
+        decrement(byMonth, YearMonth.from(e.getStart()));
+        categoryChanged(e.getEventId(), false);
+    }
+
+    private void countCategory(int eventId) {
+        String category = categories.apply(eventId);
+        if (category != null && !category.isEmpty()) {
+            countedCategory.put(eventId, category);
+            byCategory.merge(category, 1, Integer::sum);
+        }
+    }
+
+    private static <K> void decrement(Map<K, Integer> counts, K key) {
+        counts.computeIfPresent(key, (k, n) -> n == 1 ? null : n - 1);
+    }
+}
@@ -1,323 +1,378 @@
 package calenderapp;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.time.format.TextStyle;
 import java.time.temporal.TemporalAdjusters;
-import java.time.temporal.WeekFields;
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Text views of the calendar. Each view is built into one reusable buffer
+ * and written to the output in a single append and flush, so rendering to
+ * a file or pipe costs one write per view rather than one per line. Times,
+ * dates and day/month names are formatted from tables built once, and the
+ * week grid is filled from a precomputed hour x day table in one pass over
+ * the week's events.
+ */
 public class CalenderViewCLI {
+    private static final String NL = System.lineSeparator();
+    // "HH:mm" for every minute of the day
+    private static final String[] TIMES = new String[24 * 60];
+    // "%2d" and "%02d" for 0-99
+    private static final String[] PAD2 = new String[100];
+    private static final String[] ZERO2 = new String[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            PAD2[i] = (i < 10 ? " " : "") + i;
+            ZERO2[i] = (i < 10 ? "0" : "") + i;
+        }
+        for (int m = 0; m < TIMES.length; m++) {
+            TIMES[m] = ZERO2[m / 60] + ":" + ZERO2[m % 60];
+        }
+    }
+
     private EventManager eventManager;
-    private DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm");
-    private DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    
+    // null means System.out as it is at the time of writing
+    private final Appendable out;
+    private final StringBuilder buffer = new StringBuilder(4096);
+    private final String[] dayNamesShort = new String[7];
+    private final String[] dayNamesFull = new String[7];
+    private final String[] monthNamesShort = new String[12];
+    private final String[] monthNamesFull = new String[12];
+
     public CalenderViewCLI(EventManager eventManager) {
+        this(eventManager, null);
+    }
+
+    // Render every view to out (for example a Writer over a file); out is flushed after each view if it can be
+    public CalenderViewCLI(EventManager eventManager, Appendable out) {
         this.eventManager = eventManager;
+        this.out = out;
+        Locale locale = Locale.getDefault();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            dayNamesShort[day.ordinal()] = day.getDisplayName(TextStyle.SHORT, locale);
+            dayNamesFull[day.ordinal()] = day.getDisplayName(TextStyle.FULL, locale);
+        }
+        for (Month month : Month.values()) {
+            monthNamesShort[month.ordinal()] = month.getDisplayName(TextStyle.SHORT, locale);
+            monthNamesFull[month.ordinal()] = month.getDisplayName(TextStyle.FULL, locale);
+        }
     }
-    
+
     // ==================== LIST VIEWS ====================
-    
+
     /**
      * Display events for a specific day
      */
     public void displayDayListView(LocalDate date) {
-        System.out.println("\n=== " + date.format(DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy")) + " ===");
-        
-        List<Event> dayEvents = new ArrayList<>(eventManager.getEventsForDate(date));
-        
+        StringBuilder sb = begin();
+        // EEEE, MMMM d, yyyy
+        sb.append(NL).append("=== ").append(dayNamesFull[date.getDayOfWeek().ordinal()]).append(", ")
+          .append(monthNamesFull[date.getMonthValue() - 1]).append(' ').append(date.getDayOfMonth()).append(", ");
+        year(sb, date.getYear()).append(" ===").append(NL);
+
+        List<Event> dayEvents = eventManager.getEventsForDate(date);
+
         if (dayEvents.isEmpty()) {
-            System.out.println("No events scheduled.");
+            sb.append("No events scheduled.").append(NL);
         } else {
-            dayEvents.sort(Comparator.comparing(Event::getStart));
             for (Event event : dayEvents) {
-                String timeStr = event.getStart().format(timeFormat);
-                String recurring = event.isRecurring() ? " [R]" : "";
-                System.out.println("  " + timeStr + " - " + event.getTitle() + recurring);
+                sb.append("  ").append(time(event.getStart())).append(" - ").append(event.getTitle());
+                if (event.isRecurring()) {
+                    sb.append(" [R]");
+                }
+                sb.append(NL);
                 if (!event.getDescription().isEmpty()) {
-                    System.out.println("       " + event.getDescription());
+                    sb.append("       ").append(event.getDescription()).append(NL);
                 }
             }
         }
-        System.out.println();
+        sb.append(NL);
+        flush();
     }
-    
+
     /**
      * Display events for a week
      */
     public void displayWeekListView(LocalDate startOfWeek) {
         // Ensure we start on Sunday
         LocalDate sunday = startOfWeek.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
-        
-        System.out.println("\n=== Week of " + sunday.format(dateFormat) + " ===");
-        
+
+        StringBuilder sb = begin();
+        sb.append(NL).append("=== Week of ");
+        date(sb, sunday).append(" ===").append(NL);
+
+        // One range query for the whole week; days come back sorted by start
+        Map<LocalDate, List<Event>> eventsByDate = eventManager.getEventsByDate(sunday, sunday.plusDays(6));
+
         for (int i = 0; i < 7; i++) {
             LocalDate date = sunday.plusDays(i);
-            String dayName = date.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault());
-            String dayNum = String.format("%02d", date.getDayOfMonth());
-            
-            List<Event> dayEvents = new ArrayList<>(eventManager.getEventsForDate(date));
-            
+            sb.append(dayNamesShort[date.getDayOfWeek().ordinal()]).append(' ').append(ZERO2[date.getDayOfMonth()]);
+
+            List<Event> dayEvents = eventsByDate.getOrDefault(date, List.of());
+
             if (dayEvents.isEmpty()) {
-                System.out.println(dayName + " " + dayNum + ": No events");
+                sb.append(": No events").append(NL);
+            } else if (dayEvents.size() == 1) {
+                Event event = dayEvents.get(0);
+                sb.append(": ").append(event.getTitle()).append(" (").append(time(event.getStart())).append(')').append(NL);
             } else {
-                dayEvents.sort(Comparator.comparing(Event::getStart));
-                System.out.print(dayName + " " + dayNum + ": ");
-                
-                if (dayEvents.size() == 1) {
-                    Event event = dayEvents.get(0);
-                    System.out.println(event.getTitle() + " (" + event.getStart().format(timeFormat) + ")");
-                } else {
-                    System.out.println();
-                    for (Event event : dayEvents) {
-                        System.out.println("       " + event.getTitle() + " (" + event.getStart().format(timeFormat) + ")");
-                    }
+                sb.append(": ").append(NL);
+                for (Event event : dayEvents) {
+                    sb.append("       ").append(event.getTitle()).append(" (").append(time(event.getStart())).append(')').append(NL);
                 }
             }
         }
-        System.out.println();
+        sb.append(NL);
+        flush();
     }
-    
+
     /**
      * Display events for a month in list format
      */
     public void displayMonthListView(YearMonth yearMonth) {
-        System.out.println("\n=== " + yearMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.getDefault()) + 
-                          " " + yearMonth.getYear() + " ===\n");
-        
+        StringBuilder sb = begin();
+        sb.append(NL).append("=== ").append(monthNamesFull[yearMonth.getMonthValue() - 1]).append(' ')
+          .append(yearMonth.getYear()).append(" ===").append(NL).append(NL);
+
         LocalDate firstDay = yearMonth.atDay(1);
         LocalDate lastDay = yearMonth.atEndOfMonth();
-        
-        Map<LocalDate, List<Event>> eventsByDate = new TreeMap<>();
-        
-        // Group events by date
-        for (Event event : eventManager.getEvents()) {
-            LocalDate eventDate = event.getStart().toLocalDate();
-            if (!eventDate.isBefore(firstDay) && !eventDate.isAfter(lastDay)) {
-                eventsByDate.computeIfAbsent(eventDate, k -> new ArrayList<>()).add(event);
-            }
-        }
-        
+
+        // Events grouped by date, each day sorted by start
+        Map<LocalDate, List<Event>> eventsByDate = eventManager.getEventsByDate(firstDay, lastDay);
+
         if (eventsByDate.isEmpty()) {
-            System.out.println("No events this month.");
+            sb.append("No events this month.").append(NL);
         } else {
             for (Map.Entry<LocalDate, List<Event>> entry : eventsByDate.entrySet()) {
                 LocalDate date = entry.getKey();
-                List<Event> events = entry.getValue();
-                events.sort(Comparator.comparing(Event::getStart));
-                
-                System.out.println(date.format(DateTimeFormatter.ofPattern("EEE dd:")));
-                for (Event event : events) {
-                    String timeStr = event.getStart().format(timeFormat);
-                    String recurring = event.isRecurring() ? " [R]" : "";
-                    System.out.println("  " + timeStr + " - " + event.getTitle() + recurring);
+                // EEE dd:
+                sb.append(dayNamesShort[date.getDayOfWeek().ordinal()]).append(' ').append(ZERO2[date.getDayOfMonth()])
+                  .append(':').append(NL);
+                for (Event event : entry.getValue()) {
+                    sb.append("  ").append(time(event.getStart())).append(" - ").append(event.getTitle());
+                    if (event.isRecurring()) {
+                        sb.append(" [R]");
+                    }
+                    sb.append(NL);
                 }
-                System.out.println();
+                sb.append(NL);
             }
         }
+        flush();
     }
-    
+
     // ==================== CALENDAR VIEWS ====================
-    
+
     /**
      * Display calendar view for a month
      */
     public void displayMonthCalendarView(YearMonth yearMonth) {
-        System.out.println("\n" + yearMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.getDefault()) + 
-                          " " + yearMonth.getYear());
-        
+        StringBuilder sb = begin();
+        sb.append(NL).append(monthNamesFull[yearMonth.getMonthValue() - 1]).append(' ').append(yearMonth.getYear()).append(NL);
+
         // Header with day names
-        System.out.println("Su Mo Tu We Th Fr Sa");
-        
+        sb.append("Su Mo Tu We Th Fr Sa").append(NL);
+
         LocalDate firstDay = yearMonth.atDay(1);
         int startDayOfWeek = firstDay.getDayOfWeek().getValue() % 7; // 0 = Sunday
-        
-        // Print leading spaces
+
+        // Leading spaces
         for (int i = 0; i < startDayOfWeek; i++) {
-            System.out.print("   ");
+            sb.append("   ");
         }
-        
-        // Map to store which days have events
-        Map<Integer, List<Event>> eventsByDay = new HashMap<>();
-        for (Event event : eventManager.getEvents()) {
-            LocalDate eventDate = event.getStart().toLocalDate();
-            if (eventDate.getYear() == yearMonth.getYear() && 
-                eventDate.getMonth() == yearMonth.getMonth()) {
-                eventsByDay.computeIfAbsent(eventDate.getDayOfMonth(), k -> new ArrayList<>()).add(event);
-            }
+
+        // Days with events, indexed by day of month
+        NavigableMap<LocalDate, List<Event>> eventsByDate = eventManager.getEventsByDate(firstDay, yearMonth.atEndOfMonth());
+        boolean[] hasEvents = new boolean[32];
+        for (LocalDate date : eventsByDate.keySet()) {
+            hasEvents[date.getDayOfMonth()] = true;
         }
-        
-        // Print days
+
         int daysInMonth = yearMonth.lengthOfMonth();
         for (int day = 1; day <= daysInMonth; day++) {
-            String dayStr;
-            if (eventsByDay.containsKey(day)) {
-                dayStr = String.format("%2d*", day);
+            if (hasEvents[day]) {
+                sb.append(PAD2[day]).append('*');
             } else {
-                dayStr = String.format("%3d", day);
+                sb.append(' ').append(PAD2[day]);
             }
-            System.out.print(dayStr);
-            
+
             // New line after Saturday
             if ((startDayOfWeek + day) % 7 == 0) {
-                System.out.println();
+                sb.append(NL);
             } else {
-                System.out.print(" ");
+                sb.append(' ');
             }
         }
-        
-        System.out.println("\n");
-        
-        // Print legend for days with events
-        if (!eventsByDay.isEmpty()) {
-            List<Integer> daysWithEvents = new ArrayList<>(eventsByDay.keySet());
-            Collections.sort(daysWithEvents);
-            
-            for (int day : daysWithEvents) {
-                List<Event> events = eventsByDay.get(day);
-                events.sort(Comparator.comparing(Event::getStart));
-                
-                System.out.println("* " + day + ":");
-                for (Event event : events) {
-                    System.out.println("    " + event.getTitle() + " (" + event.getStart().format(timeFormat) + ")");
+
+        sb.append(NL).append(NL);
+
+        // Legend for days with events
+        if (!eventsByDate.isEmpty()) {
+            for (Map.Entry<LocalDate, List<Event>> entry : eventsByDate.entrySet()) {
+                sb.append("* ").append(entry.getKey().getDayOfMonth()).append(':').append(NL);
+                for (Event event : entry.getValue()) {
+                    sb.append("    ").append(event.getTitle()).append(" (").append(time(event.getStart())).append(')').append(NL);
                 }
             }
-            System.out.println();
+            sb.append(NL);
         }
+        flush();
     }
-    
+
     /**
      * Display calendar view for a week
      */
     public void displayWeekCalendarView(LocalDate startOfWeek) {
         LocalDate sunday = startOfWeek.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
         LocalDate saturday = sunday.plusDays(6);
-        
-        System.out.println("\n=== Week: " + sunday.format(dateFormat) + " to " + 
-                          saturday.format(dateFormat) + " ===\n");
-        
-        // Print header
-        System.out.println("Time  | Sun | Mon | Tue | Wed | Thu | Fri | Sat |");
-        System.out.println("------|-----|-----|-----|-----|-----|-----|-----|");
-        
-        // Collect all events for the week
-        Map<LocalDate, List<Event>> eventsByDate = new TreeMap<>();
-        for (int i = 0; i < 7; i++) {
-            LocalDate date = sunday.plusDays(i);
-            List<Event> dayEvents = new ArrayList<>(eventManager.getEventsForDate(date));
-            if (!dayEvents.isEmpty()) {
-                eventsByDate.put(date, dayEvents);
-            }
-        }
-        
-        // Find time range
+
+        StringBuilder sb = begin();
+        sb.append(NL).append("=== Week: ");
+        date(sb, sunday).append(" to ");
+        date(sb, saturday).append(" ===").append(NL).append(NL);
+
+        // Header
+        sb.append("Time  | Sun | Mon | Tue | Wed | Thu | Fri | Sat |").append(NL);
+        sb.append("------|-----|-----|-----|-----|-----|-----|-----|").append(NL);
+
+        // Collect all events for the week in one range query
+        Map<LocalDate, List<Event>> eventsByDate = eventManager.getEventsByDate(sunday, saturday);
+
+        // One pass: time range, and which (hour, day) cells have an event starting in them
         int earliestHour = 8;
         int latestHour = 18;
-        
-        for (List<Event> events : eventsByDate.values()) {
-            for (Event event : events) {
-                earliestHour = Math.min(earliestHour, event.getStart().getHour());
+        boolean[][] grid = new boolean[25][7];
+        for (Map.Entry<LocalDate, List<Event>> entry : eventsByDate.entrySet()) {
+            int dayOffset = (int) (entry.getKey().toEpochDay() - sunday.toEpochDay());
+            for (Event event : entry.getValue()) {
+                int hour = event.getStart().getHour();
+                grid[hour][dayOffset] = true;
+                earliestHour = Math.min(earliestHour, hour);
                 latestHour = Math.max(latestHour, event.getEnd().getHour() + 1);
             }
         }
-        
-        // Print time slots
+
+        // Time slots
         for (int hour = earliestHour; hour <= latestHour; hour++) {
-            System.out.printf("%02d:00 |", hour);
-            
+            sb.append(ZERO2[hour]).append(":00 |");
             for (int dayOffset = 0; dayOffset < 7; dayOffset++) {
-                LocalDate date = sunday.plusDays(dayOffset);
-                List<Event> dayEvents = eventsByDate.getOrDefault(date, new ArrayList<>());
-                
-                boolean hasEventAtHour = false;
-                for (Event event : dayEvents) {
-                    int eventHour = event.getStart().getHour();
-                    if (eventHour == hour) {
-                        System.out.print("  *  |");
-                        hasEventAtHour = true;
-                        break;
-                    }
-                }
-                
-                if (!hasEventAtHour) {
-                    System.out.print("     |");
-                }
+                sb.append(grid[hour][dayOffset] ? "  *  |" : "     |");
             }
-            System.out.println();
+            sb.append(NL);
         }
-        
-        System.out.println();
-        
-        // Print event details
-        for (int i = 0; i < 7; i++) {
-            LocalDate date = sunday.plusDays(i);
-            List<Event> dayEvents = eventsByDate.get(date);
-            
-            if (dayEvents != null && !dayEvents.isEmpty()) {
-                String dayName = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.getDefault());
-                System.out.println(dayName + " " + date.format(dateFormat) + ":");
-                
-                dayEvents.sort(Comparator.comparing(Event::getStart));
-                for (Event event : dayEvents) {
-                    System.out.println("  " + event.getStart().format(timeFormat) + " - " + 
-                                      event.getEnd().format(timeFormat) + ": " + event.getTitle());
-                }
-                System.out.println();
+
+        sb.append(NL);
+
+        // Event details
+        for (Map.Entry<LocalDate, List<Event>> entry : eventsByDate.entrySet()) {
+            LocalDate date = entry.getKey();
+            sb.append(dayNamesFull[date.getDayOfWeek().ordinal()]).append(' ');
+            date(sb, date).append(':').append(NL);
+            for (Event event : entry.getValue()) {
+                sb.append("  ").append(time(event.getStart())).append(" - ")
+                  .append(time(event.getEnd())).append(": ").append(event.getTitle()).append(NL);
             }
+            sb.append(NL);
         }
+        flush();
     }
-    
+
     // ==================== UTILITY METHODS ====================
-    
+
     /**
      * Display today's events
      */
     public void displayToday() {
         displayDayListView(LocalDate.now());
     }
-    
+
     /**
      * Display this week's events
      */
     public void displayThisWeek() {
         displayWeekListView(LocalDate.now());
     }
-    
+
     /**
      * Display this month's events
      */
     public void displayThisMonth() {
         displayMonthListView(YearMonth.now());
     }
-    
+
     /**
      * Display upcoming events (next 7 days)
      */
     public void displayUpcoming() {
         LocalDate today = LocalDate.now();
         LocalDate weekFromNow = today.plusDays(7);
-        
-        System.out.println("\n=== Upcoming Events (Next 7 Days) ===\n");
-        
-        List<Event> upcomingEvents = eventManager.searchByDateRange(today, weekFromNow);
-        upcomingEvents.sort(Comparator.comparing(Event::getStart));
-        
-        if (upcomingEvents.isEmpty()) {
-            System.out.println("No upcoming events.");
+
+        StringBuilder sb = begin();
+        sb.append(NL).append("=== Upcoming Events (Next 7 Days) ===").append(NL).append(NL);
+
+        Map<LocalDate, List<Event>> upcoming = eventManager.getEventsByDate(today, weekFromNow);
+
+        if (upcoming.isEmpty()) {
+            sb.append("No upcoming events.").append(NL);
         } else {
-            LocalDate currentDate = null;
-            for (Event event : upcomingEvents) {
-                LocalDate eventDate = event.getStart().toLocalDate();
-                
-                if (!eventDate.equals(currentDate)) {
-                    currentDate = eventDate;
-                    System.out.println("\n" + eventDate.format(DateTimeFormatter.ofPattern("EEEE, MMM dd:")));
+            for (Map.Entry<LocalDate, List<Event>> entry : upcoming.entrySet()) {
+                LocalDate date = entry.getKey();
+                // EEEE, MMM dd:
+                sb.append(NL).append(dayNamesFull[date.getDayOfWeek().ordinal()]).append(", ")
+                  .append(monthNamesShort[date.getMonthValue() - 1]).append(' ').append(ZERO2[date.getDayOfMonth()])
+                  .append(':').append(NL);
+                for (Event event : entry.getValue()) {
+                    sb.append("  ").append(time(event.getStart())).append(" - ").append(event.getTitle()).append(NL);
                 }
-                
-                System.out.println("  " + event.getStart().format(timeFormat) + " - " + event.getTitle());
             }
         }
-        System.out.println();
+        sb.append(NL);
+        flush();
+    }
+
+    // ==================== OUTPUT ====================
+
+    private StringBuilder begin() {
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    // Write the finished view in one append
+    private void flush() {
+        Appendable target = out == null ? System.out : out;
+        try {
+            target.append(buffer);
+            if (target instanceof Flushable) {
+                ((Flushable) target).flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing calendar view: " + e.getMessage());
+        }
+        // Don't keep a huge buffer alive after rendering an unusually large view
+        if (buffer.capacity() > 1 << 20) {
+            buffer.setLength(0);
+            buffer.trimToSize();
+        }
+    }
+
+    private static String time(LocalDateTime t) {
+        return TIMES[t.getHour() * 60 + t.getMinute()];
+    }
+
+    // yyyy-MM-dd
+    private static StringBuilder date(StringBuilder sb, LocalDate date) {
+        return year(sb, date.getYear()).append('-').append(ZERO2[date.getMonthValue()]).append('-')
+                                       .append(ZERO2[date.getDayOfMonth()]);
+    }
+
+    // yyyy, as DateTimeFormatter prints it for years 0-9999
+    private static StringBuilder year(StringBuilder sb, int year) {
+        if (year < 1000) {
+            sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        return sb.append(year);
     }
-}
\ No newline at end of file
+}
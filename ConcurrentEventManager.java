@@ -0,0 +1,218 @@
+package calenderapp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe front for one EventManager shared by several client threads.
+ * Writes are serialized by a single lock, so ids are allocated and journal
+ * records appended in one order. Date, id and conflict reads never take the
+ * lock: they go to the last published CalendarSnapshot, which every write
+ * replaces before releasing the lock. Keyword search and additional fields
+ * still use the manager's mutable indexes and therefore run under the lock.
+ * A windowed manager only holds some months, so there the id, date and
+ * conflict reads first page in the months they need, under the lock;
+ * getEvents and getTotalEvents cover the months in memory.
+ */
+public class ConcurrentEventManager {
+    private final EventManager manager;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public ConcurrentEventManager() {
+        this(new EventManager());
+    }
+
+    // The manager must not be used directly once wrapped
+    public ConcurrentEventManager(EventManager manager) {
+        this.manager = manager;
+        write(() -> manager.snapshot());
+    }
+
+    // ==================== WRITES ====================
+
+    public int createEvent(String title, String desc, LocalDateTime start, LocalDateTime end) {
+        return write(() -> manager.createEvent(title, desc, start, end));
+    }
+
+    public int createEvent(String title, String desc, LocalDateTime start, LocalDateTime end,
+                           String location, String category, String attendees, int reminderMinutes) {
+        return write(() -> manager.createEvent(title, desc, start, end, location, category, attendees, reminderMinutes));
+    }
+
+    // Check and create atomically; returns the new id, or -1 if the slot is taken
+    public int createEventIfFree(String title, String desc, LocalDateTime start, LocalDateTime end) {
+        return write(() -> manager.hasConflict(start, end) ? -1 : manager.createEvent(title, desc, start, end));
+    }
+
+    public int addRecurringEvent(Event event) {
+        return write(() -> manager.addRecurringEvent(event));
+    }
+
+    public ImportResult importEvents(Iterable<EventSpec> specs) {
+        return write(() -> manager.importEvents(specs));
+    }
+
+    public void updateEvent(int id, String newTitle, String newDesc, LocalDateTime newStart, LocalDateTime newEnd) {
+        write(() -> manager.updateEvent(id, newTitle, newDesc, newStart, newEnd));
+    }
+
+    public void updateEvent(int id, String newTitle, String newDesc, LocalDateTime newStart, LocalDateTime newEnd,
+                            String location, String category, String attendees, int reminderMinutes) {
+        write(() -> manager.updateEvent(id, newTitle, newDesc, newStart, newEnd,
+                                        location, category, attendees, reminderMinutes));
+    }
+
+    public void updateRecurringSeries(int seriesId, String newTitle, String newDesc, int newReminderMinutes) {
+        write(() -> manager.updateRecurringSeries(seriesId, newTitle, newDesc, newReminderMinutes));
+    }
+
+    public void deleteEvent(int id) {
+        write(() -> manager.deleteEvent(id));
+    }
+
+    public void deleteRecurringEvent(Event event) {
+        write(() -> manager.deleteRecurringEvent(event));
+    }
+
+    public void backupEvents(String path) {
+        write(() -> manager.backupEvents(path));
+    }
+
+    public void backupIncremental(String path) {
+        write(() -> manager.backupIncremental(path));
+    }
+
+    public void restoreEvents(String path) {
+        write(() -> manager.restoreEvents(path));
+    }
+
+    public void restoreEvents(String path, int increments) {
+        write(() -> manager.restoreEvents(path, increments));
+    }
+
+    public void saveFields(int eventId, String location, String category, String attendees) {
+        write(() -> manager.getAdditionalFieldManager().saveFields(eventId, location, category, attendees));
+    }
+
+    public AdditionalFieldManager.AdditionalFields getFields(int eventId) {
+        return write(() -> manager.getAdditionalFieldManager().getFields(eventId));
+    }
+
+    public List<Event> searchByKeyword(String keyword) {
+        return write(() -> manager.searchByKeyword(keyword));
+    }
+
+    public List<Event> searchByAllKeywords(String query) {
+        return write(() -> manager.searchByAllKeywords(query));
+    }
+
+    public int getRecurringEventCount() {
+        return write(manager::getRecurringEventCount);
+    }
+
+    public String getBusiestDay() {
+        return write(manager::getBusiestDay);
+    }
+
+    public Map<String, Integer> getEventsByCategory() {
+        return write(manager::getEventsByCategory);
+    }
+
+    public List<String> verifyStatistics() {
+        return write(manager::verifyStatistics);
+    }
+
+    public void close() {
+        write(manager::close);
+    }
+
+    public boolean isWindowed() {
+        return manager.isWindowed();
+    }
+
+    // The manager's store; its methods are safe to call without the lock only where the store says so
+    EventStore getStore() {
+        return manager.getStore();
+    }
+
+    public void addChangeListener(EventManager.ChangeListener listener) {
+        manager.addChangeListener(listener);
+    }
+
+    public void removeChangeListener(EventManager.ChangeListener listener) {
+        manager.removeChangeListener(listener);
+    }
+
+    // ==================== LOCK-FREE READS ====================
+
+    // Consistent view of the calendar as of the last completed write
+    public CalendarSnapshot snapshot() {
+        return manager.publishedSnapshot();
+    }
+
+    // Same, holding every event that may overlap from..to; a windowed manager pages their months in first,
+    // under the lock
+    public CalendarSnapshot snapshot(LocalDateTime from, LocalDateTime to) {
+        return manager.isWindowed() ? write(() -> manager.snapshot(from, to)) : snapshot();
+    }
+
+    public Event getEventById(int id) {
+        return manager.isWindowed() ? write(() -> manager.getEventById(id)) : snapshot().getEventById(id);
+    }
+
+    public List<Event> getEventsForDate(LocalDate date) {
+        return snapshot(date, date).getEventsForDate(date);
+    }
+
+    public List<Event> searchByDateRange(LocalDate start, LocalDate end) {
+        return snapshot(start, end).between(start, end);
+    }
+
+    public NavigableMap<LocalDate, List<Event>> getEventsByDate(LocalDate start, LocalDate end) {
+        return snapshot(start, end).days(start, end);
+    }
+
+    public boolean hasConflict(LocalDateTime start, LocalDateTime end) {
+        return snapshot(start, end).hasConflict(start, end, -1);
+    }
+
+    public boolean hasConflictExcludingEvent(LocalDateTime start, LocalDateTime end, int excludeId) {
+        return snapshot(start, end).hasConflict(start, end, excludeId);
+    }
+
+    public List<Event> getEvents() {
+        return snapshot().getEvents();
+    }
+
+    public int getTotalEvents() {
+        return snapshot().size();
+    }
+
+    // Snapshot holding the events of the days start..end
+    private CalendarSnapshot snapshot(LocalDate start, LocalDate end) {
+        return snapshot(start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+    }
+
+    // Run one write under the lock and publish its result, even if it failed part-way
+    private <T> T write(Supplier<T> op) {
+        writeLock.lock();
+        try {
+            return op.get();
+        } finally {
+            manager.snapshot();
+            writeLock.unlock();
+        }
+    }
+
+    private void write(Runnable op) {
+        write(() -> {
+            op.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,206 @@
+package calenderapp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Multi-threaded stress check for ConcurrentEventManager. Writer threads
+ * create and repeatedly rename their own events while reader threads query
+ * snapshots; afterwards every id must be unique, no event may be missing,
+ * every event must carry its final title, and exactly one of several racing
+ * createEventIfFree calls for the same slot may succeed. Readers check that
+ * each snapshot is internally consistent and that versions never go back.
+ * A last check reopens a journal-backed calendar holding non-ASCII titles,
+ * created one at a time and by a bulk import, and expects every event back
+ * unchanged, whatever the default charset.
+ *
+ * Usage: java calenderapp.ConcurrentStressCheck [writers] [eventsPerWriter]
+ */
+public class ConcurrentStressCheck {
+    private static final int READERS = 4;
+    private static final int RENAMES = 5;
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perWriter = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        List<String> failures = run(writers, perWriter);
+        failures.addAll(reloadCheck());
+        if (failures.isEmpty()) {
+            System.out.println("OK: " + writers + " writers x " + perWriter + " events, " + READERS + " readers");
+        } else {
+            failures.forEach(f -> System.out.println("FAIL: " + f));
+            System.exit(1);
+        }
+    }
+
+    static List<String> run(int writers, int perWriter) throws Exception {
+        ConcurrentEventManager manager = new ConcurrentEventManager(
+                new EventManager(new ArrayList<>(), new AdditionalFieldManager(new HashMap<>())));
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(writers + READERS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+
+        List<Future<?>> readerTasks = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            long seed = r;
+            readerTasks.add(pool.submit(() -> read(manager, writing, reads, failures, seed)));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<int[]>> writerTasks = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            writerTasks.add(pool.submit(() -> {
+                start.await();
+                int[] ids = new int[perWriter];
+                for (int i = 0; i < perWriter; i++) {
+                    // Writers interleave through the same days so their months are rebuilt concurrently
+                    LocalDateTime s = ORIGIN.plusDays(i % 365).plusMinutes(writer * 5L);
+                    ids[i] = manager.createEvent("w" + writer + "-new", "stress", s, s.plusMinutes(30));
+                }
+                for (int round = 1; round <= RENAMES; round++) {
+                    for (int id : ids) {
+                        Event e = manager.getEventById(id);
+                        manager.updateEvent(id, "w" + writer + "-" + round, "stress", e.getStart(), e.getEnd());
+                    }
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Integer> allIds = new HashSet<>();
+        int created = 0;
+        for (int w = 0; w < writers; w++) {
+            int[] ids = writerTasks.get(w).get();
+            for (int id : ids) {
+                created++;
+                if (!allIds.add(id)) {
+                    failures.add("duplicate id " + id);
+                }
+                Event e = manager.getEventById(id);
+                String expected = "w" + w + "-" + RENAMES;
+                if (e == null) {
+                    failures.add("lost event " + id);
+                } else if (!e.getTitle().equals(expected)) {
+                    failures.add("lost update on " + id + ": " + e.getTitle() + " instead of " + expected);
+                }
+            }
+        }
+        if (manager.getTotalEvents() != created) {
+            failures.add("snapshot holds " + manager.getTotalEvents() + " events, expected " + created);
+        }
+
+        // Racing check-and-create for one slot: exactly one winner
+        LocalDateTime slot = ORIGIN.minusDays(1);
+        List<Callable<Integer>> racers = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            racers.add(() -> manager.createEventIfFree("race", "", slot, slot.plusHours(1)));
+        }
+        long winners = 0;
+        for (Future<Integer> f : pool.invokeAll(racers)) {
+            winners += f.get() > 0 ? 1 : 0;
+        }
+        if (winners != 1) {
+            failures.add(winners + " createEventIfFree calls won the same slot");
+        }
+
+        writing.set(false);
+        for (Future<?> f : readerTasks) {
+            f.get();
+        }
+        pool.shutdown();
+        System.out.println(reads.get() + " snapshot reads during the run");
+        return failures;
+    }
+
+    // Events with non-ASCII titles written to a journal come back from it unchanged, both by replaying
+    // the journal and from the snapshot written on close
+    static List<String> reloadCheck() throws IOException {
+        List<String> failures = new ArrayList<>();
+        Path dir = Files.createTempDirectory("calendar-reload");
+        try {
+            String[] titles = {"Caf\u00e9", "Plain", "\u4f1a\u8b70", "Stra\u00dfe \ud83d\udcc5"};
+            EventManager manager = new EventManager(new JournalEventStore(dir.toFile(), false));
+            Map<Integer, String> expected = new LinkedHashMap<>();
+            for (int i = 0; i < titles.length; i++) {
+                LocalDateTime s = ORIGIN.plusDays(i);
+                expected.put(manager.createEvent(titles[i], titles[i], s, s.plusHours(1)), titles[i]);
+            }
+            // An import is written as one journal batch, so one bad record would cost every event in it
+            List<EventSpec> specs = new ArrayList<>();
+            for (int i = 0; i < titles.length; i++) {
+                LocalDateTime s = ORIGIN.plusDays(titles.length + i);
+                specs.add(new EventSpec(titles[i], titles[i], s, s.plusHours(1)));
+            }
+            ImportResult imported = manager.importEvents(specs);
+            if (imported.getImportedCount() != titles.length) {
+                failures.add("import created " + imported.getImportedCount() + " of " + titles.length + " events");
+            }
+            for (int i = 0; i < imported.getCreatedIds().size(); i++) {
+                expected.put(imported.getCreatedIds().get(i), titles[i]);
+            }
+
+            checkReload(dir, expected, "journal replay", failures);
+            manager.close();
+            checkReload(dir, expected, "snapshot", failures);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static void checkReload(Path dir, Map<Integer, String> expected, String from, List<String> failures) {
+        EventManager reloaded = new EventManager(new JournalEventStore(dir.toFile(), false));
+        if (reloaded.getEvents().size() != expected.size()) {
+            failures.add("reload from " + from + " found " + reloaded.getEvents().size() + " events, expected "
+                    + expected.size());
+        }
+        expected.forEach((id, title) -> {
+            Event e = reloaded.getEventById(id);
+            if (e == null) {
+                failures.add("reload from " + from + " lost event " + id);
+            } else if (!e.getTitle().equals(title) || !e.getDescription().equals(title)) {
+                failures.add("reload from " + from + " changed event " + id + " to " + e.getTitle());
+            }
+        });
+    }
+
+    private static void read(ConcurrentEventManager manager, AtomicBoolean writing, AtomicLong reads,
+                             List<String> failures, long seed) {
+        Random random = new Random(seed);
+        long lastVersion = -1;
+        while (writing.get() && failures.isEmpty()) {
+            CalendarSnapshot snapshot = manager.snapshot();
+            if (snapshot.getVersion() < lastVersion) {
+                failures.add("snapshot version went back from " + lastVersion + " to " + snapshot.getVersion());
+            }
+            lastVersion = snapshot.getVersion();
+            LocalDate day = ORIGIN.toLocalDate().plusDays(random.nextInt(365));
+            for (Event e : snapshot.getEventsForDate(day)) {
+                if (!e.getStart().toLocalDate().equals(day) || snapshot.getEventById(e.getEventId()) != e) {
+                    failures.add("inconsistent snapshot " + snapshot.getVersion() + " for event " + e.getEventId());
+                    break;
+                }
+            }
+            if (random.nextInt(50) == 0 && snapshot.getEvents().size() != snapshot.size()) {
+                failures.add("snapshot " + snapshot.getVersion() + " size does not match its events");
+            }
+            reads.incrementAndGet();
+        }
+    }
+}
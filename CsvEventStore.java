@@ -0,0 +1,134 @@
+package calenderapp;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Store over one ||-delimited file (by default data/events.csv), one line
+ * per event with its additional fields, for importing and exporting that
+ * format only. A text file cannot be updated in place, so every change asks
+ * for a compaction and the whole file is rewritten, atomically and with an
+ * fsync, from the manager's state: a cost that grows with the calendar, per
+ * change. It must not back a manager that takes interactive edits; open the
+ * file with this store, move its contents to JournalEventStore (or
+ * JdbcEventStore) with replaceAll, and write CSV back out the same way or
+ * with backupEvents. Recurrence rules are written out as their individual
+ * occurrences, as in a backup, and load back as events. The find methods
+ * stream the file without loading it.
+ */
+public class CsvEventStore implements EventStore {
+    private final File file;
+    private boolean dirty;
+
+    public CsvEventStore() {
+        this(new File(FileManager.DATA_DIR, FileManager.CSV_FILE));
+    }
+
+    public CsvEventStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public BinarySnapshot.Contents load() throws IOException {
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        if (!AtomicFile.exists(file.toPath())) {
+            return new BinarySnapshot.Contents(new ArrayList<>(), new ArrayList<>(), fields);
+        }
+        List<Event> events = FileManager.parseEventsCsv(file, fields);
+        return new BinarySnapshot.Contents(events, new ArrayList<>(), fields);
+    }
+
+    // The change reaches the file with the next compaction, which the manager requests right away:
+    // a full rewrite per change, hence import and export only
+    @Override
+    public void write(Changes changes) {
+        dirty = true;
+    }
+
+    @Override
+    public boolean needsCompaction(int liveRecords) {
+        return dirty;
+    }
+
+    // Always rewrites the file before returning
+    @Override
+    public void compact(Supplier<BinarySnapshot.Contents> state, boolean wait) {
+        if (dirty) {
+            replaceAll(state.get());
+        }
+    }
+
+    @Override
+    public void replaceAll(BinarySnapshot.Contents contents) {
+        List<Event> events = new ArrayList<>(contents.events);
+        Set<Integer> stored = new HashSet<>();
+        for (Event e : contents.events) {
+            stored.add(e.getEventId());
+        }
+        for (RecurrenceRule r : contents.rules) {
+            for (Event e : r.occurrences()) {
+                if (stored.add(e.getEventId())) {
+                    events.add(e);
+                }
+            }
+        }
+        try {
+            FileManager.writeEventsCsv(file, events, contents.fields);
+            dirty = false;
+        } catch (IOException ex) {
+            System.err.println("Error saving events: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public List<Event> findEvents(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Event> found = scan(e -> !e.getStart().isBefore(from) && e.getStart().isBefore(to));
+        found.sort(Comparator.comparing(Event::getStart).thenComparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public List<Event> findSeries(int seriesId) throws IOException {
+        List<Event> found = scan(e -> e.getSeriesId() == seriesId);
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public List<Event> findByKeyword(String keyword) throws IOException {
+        String lower = keyword.toLowerCase();
+        List<Event> found = scan(e -> e.getTitle().toLowerCase().contains(lower) ||
+                                      e.getDescription().toLowerCase().contains(lower));
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Events of the file that match, parsed one line at a time
+    private List<Event> scan(Predicate<Event> filter) throws IOException {
+        List<Event> found = new ArrayList<>();
+        InputStream content = AtomicFile.openContent(file.toPath());
+        if (content == null) {
+            return found;
+        }
+        try (EventCsvParser parser = new EventCsvParser(new InputStreamReader(content), null)) {
+            while (parser.hasNext()) {
+                Event e = parser.next();
+                if (filter.test(e)) {
+                    found.add(e);
+                }
+            }
+        }
+        return found;
+    }
+}
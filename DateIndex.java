@@ -0,0 +1,74 @@
+package calenderapp;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Events bucketed by start date. Each bucket is kept sorted by start time
+ * (then id), so range queries walk only the requested days and return
+ * events already in display order.
+ */
+public class DateIndex {
+    private static final Comparator<Event> ORDER =
+            Comparator.comparing(Event::getStart).thenComparingInt(Event::getEventId);
+
+    private final TreeMap<LocalDate, List<Event>> buckets = new TreeMap<>();
+    private int size;
+
+    // Add an event to the bucket of its current start date
+    public void add(Event e) {
+        List<Event> bucket = buckets.computeIfAbsent(e.getStart().toLocalDate(), k -> new ArrayList<>());
+        int pos = Collections.binarySearch(bucket, e, ORDER);
+        bucket.add(pos < 0 ? -pos - 1 : pos, e);
+        size++;
+    }
+
+    // Remove an event; its start must not have changed since it was added
+    public boolean remove(Event e) {
+        LocalDate date = e.getStart().toLocalDate();
+        List<Event> bucket = buckets.get(date);
+        if (bucket == null) {
+            return false;
+        }
+        int pos = Collections.binarySearch(bucket, e, ORDER);
+        if (pos < 0 || bucket.get(pos) != e) {
+            pos = bucket.indexOf(e);
+            if (pos < 0) {
+                return false;
+            }
+        }
+        bucket.remove(pos);
+        if (bucket.isEmpty()) {
+            buckets.remove(date);
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Events starting on the given date, sorted by start
+    public List<Event> get(LocalDate date) {
+        List<Event> bucket = buckets.get(date);
+        return bucket == null ? List.of() : List.copyOf(bucket);
+    }
+
+    // Events starting within [from, to] (inclusive), sorted by start
+    public List<Event> between(LocalDate from, LocalDate to) {
+        List<Event> results = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return results;
+        }
+        for (List<Event> bucket : buckets.subMap(from, true, to, true).values()) {
+            results.addAll(bucket);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,349 @@
+package calenderapp;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The events of one month partition and their additional fields in
+ * struct-of-arrays form: one primitive array per field instead of an Event
+ * object, two LocalDateTime objects and a fields object per event. Starts
+ * and ends are minutes since the epoch, the recurrence type is its
+ * Recurrence ordinal packed with the flags, and titles, descriptions,
+ * locations, categories and attendees are stored once per distinct value
+ * and referenced by int code. Times with seconds keep their exact values
+ * on the side. Rows are found by id through an open-addressing table of
+ * row numbers.
+ *
+ * PartitionedEventStore keeps the months it has read in this form and
+ * answers range, series and keyword queries by scanning the columns.
+ * Callers get rows as Events: findEvents, findSeries and asList return
+ * detached copies, while forEach passes one reused Event (a flyweight)
+ * that is only valid during the call. Built once and not changed
+ * afterwards; not thread-safe.
+ */
+public final class EventColumns {
+    private static final int MIN_CAPACITY = 16;
+    private static final byte RECURRING = 1;
+    private static final byte HAS_FIELDS = 2;
+    // Recurrence ordinal + 1 in the bits above the flags; 0 for none
+    private static final int TYPE_SHIFT = 2;
+    private static final int NO_STRING = -1;
+    private static final Recurrence[] RECURRENCES = Recurrence.values();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] seriesIds;
+    private final int[] counts;
+    private final int[] reminders;
+    private final long[] starts;
+    private final long[] ends;
+    private final byte[] flags;
+    private final int[] titles;
+    private final int[] descriptions;
+    private final int[] locations;
+    private final int[] categories;
+    private final int[] attendees;
+    // Row + 1 of every id, 0 for an empty slot
+    private final int[] table;
+    private final int mask;
+    // Exact start and end of the ids whose times are not whole minutes
+    private final IntHashMap<LocalDateTime[]> exactTimes = new IntHashMap<>();
+    private final StringPool strings = new StringPool();
+
+    private EventColumns(int capacity) {
+        ids = new int[capacity];
+        seriesIds = new int[capacity];
+        counts = new int[capacity];
+        reminders = new int[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        flags = new byte[capacity];
+        titles = new int[capacity];
+        descriptions = new int[capacity];
+        locations = new int[capacity];
+        categories = new int[capacity];
+        attendees = new int[capacity];
+        int slots = MIN_CAPACITY;
+        while (slots < capacity * 2) {
+            slots <<= 1;
+        }
+        table = new int[slots];
+        mask = slots - 1;
+        size = capacity;
+    }
+
+    // Columns holding events (distinct ids), each with its fields if it has any
+    public static EventColumns of(Collection<Event> events, Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        EventColumns columns = new EventColumns(events.size());
+        int row = 0;
+        for (Event e : events) {
+            columns.set(row++, e, fields.get(e.getEventId()));
+        }
+        return columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Detached copy of the fields of the event with this id, or null if it has none
+    public AdditionalFieldManager.AdditionalFields getFields(int eventId) {
+        int row = table[slot(eventId)] - 1;
+        return row < 0 ? null : fields(row);
+    }
+
+    // Pass every event in row order to action as the same reused Event, which must not be kept
+    public void forEach(Consumer<? super Event> action) {
+        Event flyweight = null;
+        for (int row = 0; row < size; row++) {
+            flyweight = read(row, flyweight);
+            action.accept(flyweight);
+        }
+    }
+
+    // Events starting in [from, to); only rows whose start minute is in range are turned into Events
+    public void findEvents(LocalDateTime from, LocalDateTime to, List<Event> found) {
+        long first = minutes(from);
+        long last = minutes(to);
+        for (int row = 0; row < size; row++) {
+            long start = starts[row];
+            if (start >= first && start <= last) {
+                LocalDateTime exact = start(row);
+                if (!exact.isBefore(from) && exact.isBefore(to)) {
+                    found.add(read(row, null));
+                }
+            }
+        }
+    }
+
+    // Events of a series, found by scanning the series column
+    public void findSeries(int seriesId, List<Event> found) {
+        for (int row = 0; row < size; row++) {
+            if (seriesIds[row] == seriesId) {
+                found.add(read(row, null));
+            }
+        }
+    }
+
+    // Read-only list of the events in row order; each get returns a new detached Event
+    public List<Event> asList() {
+        return new RowList();
+    }
+
+    // Read-only map of the fields by event id, in row order, for callers that take a fields map; each
+    // lookup returns a new AdditionalFields
+    public Map<Integer, AdditionalFieldManager.AdditionalFields> fieldsView() {
+        return new FieldsMap();
+    }
+
+    // ==================== ROWS ====================
+
+    private void set(int row, Event e, AdditionalFieldManager.AdditionalFields f) {
+        ids[row] = e.getEventId();
+        table[slot(e.getEventId())] = row + 1;
+        seriesIds[row] = e.getSeriesId();
+        counts[row] = e.getRecurrenceCount();
+        reminders[row] = e.getReminderMinutes();
+        titles[row] = strings.code(e.getTitle());
+        descriptions[row] = strings.code(e.getDescription());
+        starts[row] = minutes(e.getStart());
+        ends[row] = minutes(e.getEnd());
+        if (!isWholeMinute(e.getStart()) || !isWholeMinute(e.getEnd())) {
+            exactTimes.put(e.getEventId(), new LocalDateTime[]{e.getStart(), e.getEnd()});
+        }
+        int code = e.getRecurrence() == null ? 0 : e.getRecurrence().ordinal() + 1;
+        byte bits = (byte) (code << TYPE_SHIFT);
+        if (e.isRecurring()) {
+            bits |= RECURRING;
+        }
+        if (f != null) {
+            bits |= HAS_FIELDS;
+            locations[row] = strings.code(f.location);
+            categories[row] = strings.code(f.category);
+            attendees[row] = strings.code(f.attendees);
+        }
+        flags[row] = bits;
+    }
+
+    // Row as an Event: into is overwritten, or a new Event made if it is null
+    private Event read(int row, Event into) {
+        String title = strings.value(titles[row]);
+        String description = strings.value(descriptions[row]);
+        int code = (flags[row] & 0xFF) >>> TYPE_SHIFT;
+        Recurrence recurrence = code == 0 ? null : RECURRENCES[code - 1];
+        boolean recurring = (flags[row] & RECURRING) != 0;
+        if (into == null) {
+            Event e = new Event(ids[row], title, description, start(row), end(row));
+            e.setRecurring(recurring);
+            e.setRecurrence(recurrence);
+            e.setRecurrenceCount(counts[row]);
+            e.setSeriesId(seriesIds[row]);
+            e.setReminderMinutes(reminders[row]);
+            return e;
+        }
+        into.set(ids[row], title, description, start(row), end(row),
+                recurring, recurrence, counts[row], seriesIds[row], reminders[row]);
+        return into;
+    }
+
+    private AdditionalFieldManager.AdditionalFields fields(int row) {
+        if ((flags[row] & HAS_FIELDS) == 0) {
+            return null;
+        }
+        return new AdditionalFieldManager.AdditionalFields(
+                strings.value(locations[row]), strings.value(categories[row]), strings.value(attendees[row]));
+    }
+
+    private LocalDateTime start(int row) {
+        LocalDateTime[] exact = exactTimes.isEmpty() ? null : exactTimes.get(ids[row]);
+        return exact != null ? exact[0] : LocalDateTime.ofEpochSecond(starts[row] * 60, 0, ZoneOffset.UTC);
+    }
+
+    private LocalDateTime end(int row) {
+        LocalDateTime[] exact = exactTimes.isEmpty() ? null : exactTimes.get(ids[row]);
+        return exact != null ? exact[1] : LocalDateTime.ofEpochSecond(ends[row] * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long minutes(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static boolean isWholeMinute(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    // Slot holding id, or the empty slot where it would go
+    private int slot(int id) {
+        int h = id * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (table[i] != 0 && ids[table[i] - 1] != id) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // ==================== VIEWS ====================
+
+    private final class RowList extends AbstractList<Event> implements RandomAccess {
+        @Override
+        public Event get(int index) {
+            Objects.checkIndex(index, size);
+            return read(index, null);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class FieldsMap extends AbstractMap<Integer, AdditionalFieldManager.AdditionalFields> {
+        @Override
+        public AdditionalFieldManager.AdditionalFields get(Object key) {
+            return key instanceof Integer ? getFields((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Integer, AdditionalFieldManager.AdditionalFields>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, AdditionalFieldManager.AdditionalFields>> iterator() {
+                    return new Iterator<>() {
+                        private int row = next(0);
+
+                        private int next(int from) {
+                            while (from < size && (flags[from] & HAS_FIELDS) == 0) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return row < size;
+                        }
+
+                        @Override
+                        public Entry<Integer, AdditionalFieldManager.AdditionalFields> next() {
+                            if (row >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Integer, AdditionalFieldManager.AdditionalFields> entry =
+                                    new SimpleImmutableEntry<>(ids[row], fields(row));
+                            row = next(row + 1);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int n = 0;
+                    for (int row = 0; row < size; row++) {
+                        if ((flags[row] & HAS_FIELDS) != 0) {
+                            n++;
+                        }
+                    }
+                    return n;
+                }
+            };
+        }
+    }
+
+    // Distinct strings by code
+    private static final class StringPool {
+        private String[] values = new String[MIN_CAPACITY];
+        private int count;
+        // Code + 1 of every value, 0 for an empty slot
+        private int[] slots = new int[MIN_CAPACITY * 2];
+
+        int code(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            int i = index(value);
+            while (slots[i] != 0) {
+                if (values[slots[i] - 1].equals(value)) {
+                    return slots[i] - 1;
+                }
+                i = (i + 1) & (slots.length - 1);
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count] = value;
+            slots[i] = ++count;
+            if (count * 2 > slots.length) {
+                rehash();
+            }
+            return count - 1;
+        }
+
+        String value(int code) {
+            return code == NO_STRING ? null : values[code];
+        }
+
+        private int index(String value) {
+            int h = value.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (slots.length - 1);
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            for (int code = 0; code < count; code++) {
+                int i = index(values[code]);
+                while (slots[i] != 0) {
+                    i = (i + 1) & (slots.length - 1);
+                }
+                slots[i] = code + 1;
+            }
+        }
+    }
+}
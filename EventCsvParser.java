@@ -0,0 +1,357 @@
+package calenderapp;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streaming parser for the ||-delimited events format.
+ * Lines are scanned in place inside a reusable char buffer: delimiters are
+ * located without regex or intermediate arrays, numbers are parsed straight
+ * from the buffer and ISO timestamps written by LocalDateTime.toString()
+ * take a hand-written fast path. Only the title and description allocate
+ * new strings, so very large files are processed in constant extra memory.
+ * Malformed lines are skipped and reported to an error handler. A line may
+ * carry the event's location, category and attendees as three more fields;
+ * getFields() returns them for the event last returned by next().
+ */
+public class EventCsvParser implements Iterator<Event>, Closeable {
+    private static final int FIELD_COUNT = 10;
+    private static final int FIELD_COUNT_WITH_EXTRAS = FIELD_COUNT + 3;
+    private static final int INITIAL_BUFFER = 1 << 16;
+    private static final Recurrence[] RECURRENCES = Recurrence.values();
+
+    // A skipped line and the reason it could not be parsed
+    public static class ParseError {
+        public final int lineNumber;
+        public final String message;
+        public final String line;
+
+        public ParseError(int lineNumber, String message, String line) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+            this.line = line;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + message;
+        }
+    }
+
+    private final Reader reader;
+    private final Consumer<ParseError> errorHandler;
+    private char[] buf = new char[INITIAL_BUFFER];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private int lineNumber;
+    private int errorCount;
+    private final int[] fieldStart = new int[FIELD_COUNT_WITH_EXTRAS];
+    private final int[] fieldEnd = new int[FIELD_COUNT_WITH_EXTRAS];
+    private Event next;
+    private AdditionalFieldManager.AdditionalFields nextFields;
+    private AdditionalFieldManager.AdditionalFields currentFields;
+
+    public EventCsvParser(Reader reader, Consumer<ParseError> errorHandler) {
+        this.reader = reader;
+        this.errorHandler = errorHandler;
+    }
+
+    // Parse a whole file into a list, reporting malformed lines to errorHandler
+    public static List<Event> readAll(File file, Consumer<ParseError> errorHandler) throws IOException {
+        return readAll(new FileReader(file), errorHandler);
+    }
+
+    // Parse everything reader holds into a list and close it
+    public static List<Event> readAll(Reader reader, Consumer<ParseError> errorHandler) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (EventCsvParser parser = new EventCsvParser(reader, errorHandler)) {
+            while (parser.hasNext()) {
+                events.add(parser.next());
+            }
+        }
+        return events;
+    }
+
+    // Lazily parsed events; close the stream to release the reader
+    public Stream<Event> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    // Additional fields stored with the event last returned by next(), or null if its line had none
+    public AdditionalFieldManager.AdditionalFields getFields() {
+        return currentFields;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (next == null) {
+                int lineEnd = nextLine();
+                if (lineEnd < 0) {
+                    return false;
+                }
+                next = parseLine(pos, lineEnd);
+                pos = lineEnd + 1;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Event next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Event e = next;
+        currentFields = nextFields;
+        next = null;
+        return e;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ==================== LINE SCANNING ====================
+
+    // Index of the '\n' (or end of data) terminating the line at pos, or -1 at end of input
+    private int nextLine() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (; scan < limit; scan++) {
+                if (buf[scan] == '\n') {
+                    lineNumber++;
+                    return scan;
+                }
+            }
+            if (eof) {
+                if (pos < limit) {
+                    lineNumber++;
+                    return limit;
+                }
+                return -1;
+            }
+            // Already-scanned chars move with the tail, so resume after them
+            int scanned = scan - pos;
+            fill();
+            scan = pos + scanned;
+        }
+    }
+
+    // Move the unread tail to the front of the buffer (growing it if a line fills it) and read more
+    private void fill() throws IOException {
+        int remaining = limit - pos;
+        if (remaining == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        } else if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+        }
+        pos = 0;
+        limit = remaining;
+        int n = reader.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    // Parse buf[from, to) as one event, or report it and return null
+    private Event parseLine(int from, int to) {
+        if (to > from && buf[to - 1] == '\r') {
+            to--;
+        }
+        if (isBlank(from, to)) {
+            return null;
+        }
+        int fields = 0;
+        int start = from;
+        for (int i = from; i < to - 1; i++) {
+            if (buf[i] == '|' && buf[i + 1] == '|') {
+                if (fields < FIELD_COUNT_WITH_EXTRAS) {
+                    fieldStart[fields] = start;
+                    fieldEnd[fields] = i;
+                }
+                fields++;
+                i++;
+                start = i + 1;
+            }
+        }
+        if (fields < FIELD_COUNT_WITH_EXTRAS) {
+            fieldStart[fields] = start;
+            fieldEnd[fields] = to;
+        }
+        fields++;
+        if (fields != FIELD_COUNT && fields != FIELD_COUNT_WITH_EXTRAS) {
+            report("expected " + FIELD_COUNT + " or " + FIELD_COUNT_WITH_EXTRAS + " fields, got " + fields, from, to);
+            return null;
+        }
+
+        try {
+            Event e = new Event(parseInt(0), string(1), string(2), parseDateTime(3), parseDateTime(4));
+            e.setRecurring(parseBoolean(5));
+            e.setRecurrenceType(recurrenceType(6));
+            e.setRecurrenceCount(parseInt(7));
+            e.setSeriesId(parseInt(8));
+            e.setReminderMinutes(parseInt(9));
+            nextFields = fields == FIELD_COUNT ? null
+                    : new AdditionalFieldManager.AdditionalFields(string(10), string(11), string(12));
+            return e;
+        } catch (RuntimeException ex) {
+            report(ex.getMessage(), from, to);
+            return null;
+        }
+    }
+
+    private void report(String message, int from, int to) {
+        errorCount++;
+        if (errorHandler != null) {
+            errorHandler.accept(new ParseError(lineNumber, message, new String(buf, from, to - from)));
+        }
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== FIELD PARSING ====================
+
+    private String string(int field) {
+        return new String(buf, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    // Same result as Integer.parseInt(field.trim())
+    private int parseInt(int field) {
+        int s = fieldStart[field];
+        int e = fieldEnd[field];
+        while (s < e && buf[s] <= ' ') s++;
+        while (e > s && buf[e - 1] <= ' ') e--;
+        boolean negative = s < e && buf[s] == '-';
+        if (s < e && (buf[s] == '-' || buf[s] == '+')) s++;
+        if (s == e) {
+            throw invalidNumber(field);
+        }
+        long value = 0;
+        for (int i = s; i < e; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidNumber(field);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw invalidNumber(field);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalidNumber(field);
+        }
+        return (int) value;
+    }
+
+    private NumberFormatException invalidNumber(int field) {
+        return new NumberFormatException("For input string: \"" + string(field).trim() + "\"");
+    }
+
+    // Same result as Boolean.parseBoolean
+    private boolean parseBoolean(int field) {
+        int s = fieldStart[field];
+        return fieldEnd[field] - s == 4 &&
+               (buf[s] | 0x20) == 't' && (buf[s + 1] | 0x20) == 'r' &&
+               (buf[s + 2] | 0x20) == 'u' && (buf[s + 3] | 0x20) == 'e';
+    }
+
+    // The name of a known type without copying the field into a new String
+    private String recurrenceType(int field) {
+        for (Recurrence type : RECURRENCES) {
+            if (matches(field, type.name())) {
+                return type.name();
+            }
+        }
+        return string(field);
+    }
+
+    private boolean matches(int field, String s) {
+        int start = fieldStart[field];
+        if (fieldEnd[field] - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (buf[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Fast path for yyyy-MM-ddTHH:mm[:ss[.fraction]]; anything else goes through LocalDateTime.parse
+    private LocalDateTime parseDateTime(int field) {
+        int s = fieldStart[field];
+        int len = fieldEnd[field] - s;
+        if (len >= 16 && buf[s + 4] == '-' && buf[s + 7] == '-' && buf[s + 10] == 'T' && buf[s + 13] == ':') {
+            int year = digits(s, 4);
+            int month = digits(s + 5, 2);
+            int day = digits(s + 8, 2);
+            int hour = digits(s + 11, 2);
+            int minute = digits(s + 14, 2);
+            int second = 0;
+            int nano = 0;
+            boolean ok = year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0;
+            if (ok && len > 16) {
+                ok = len >= 19 && buf[s + 16] == ':' && (second = digits(s + 17, 2)) >= 0;
+                if (ok && len > 19) {
+                    int fraction = len - 20;
+                    ok = buf[s + 19] == '.' && fraction >= 1 && fraction <= 9 && (nano = digits(s + 20, fraction)) >= 0;
+                    for (int i = fraction; ok && i < 9; i++) {
+                        nano *= 10;
+                    }
+                }
+            }
+            if (ok) {
+                return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            }
+        }
+        return LocalDateTime.parse(string(field));
+    }
+
+    // Value of count decimal digits at buf[at], or -1 if any is not a digit
+    private int digits(int at, int count) {
+        int value = 0;
+        for (int i = at; i < at + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,349 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of event, recurrence-rule and additional-field mutations.
+ * A mutation costs one small append (plus an optional fsync) instead of a
+ * full rewrite of the snapshot. Once enough records accumulate, the journal
+ * is rotated and the snapshot is rewritten on a background thread; records
+ * appended after rotation go to a fresh journal. All records are idempotent
+ * upserts/deletes by id, so replaying a rotated journal on top of a newer
+ * snapshot is harmless. An event record may carry the event's additional
+ * fields. Several records written by one append are framed as a batch
+ * (a header with their count and CRC32C) and replayed together or not at
+ * all, so a crash never leaves half of a change behind.
+ */
+public class EventJournal {
+    private static final String DELIMITER = "||";
+    private static final String OP_EVENT = "E";
+    private static final String OP_DELETE = "D";
+    private static final String OP_FIELDS = "F";
+    private static final String OP_FIELDS_DELETE = "X";
+    private static final String OP_RULE = "R";
+    private static final String OP_RULE_DELETE = "Q";
+    private static final String OP_BATCH = "B";
+    private static final Metrics.Operation APPEND = Metrics.operation("EventJournal.append");
+    private static final Metrics.Operation COMPACT = Metrics.operation("EventJournal.compact");
+
+    private final File file;
+    private final File rotatedFile;
+    private final boolean fsync;
+    private final ExecutorService compactor;
+    private FileOutputStream out;
+    private BufferedWriter writer;
+    private int recordCount;
+    private Future<?> pendingCompaction;
+
+    public EventJournal(String path, boolean fsync) {
+        this.file = new File(path);
+        this.rotatedFile = new File(path + ".old");
+        this.fsync = fsync;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ==================== APPEND ====================
+
+    // Several changes are written as one batch and replayed all-or-nothing; false if it could not be written
+    public boolean append(EventStore.Changes changes) {
+        List<String> lines = new ArrayList<>(changes.size());
+        for (EventStore.Changes.Change c : changes.list()) {
+            lines.add(switch (c.kind) {
+                case EVENT -> OP_EVENT + DELIMITER + FileManager.formatEvent(c.event) +
+                              (c.fields == null ? "" : FileManager.formatFields(c.fields));
+                case DELETE -> OP_DELETE + DELIMITER + c.id;
+                case RULE -> OP_RULE + DELIMITER + FileManager.formatRule(c.rule);
+                case RULE_DELETE -> OP_RULE_DELETE + DELIMITER + c.id;
+                case FIELDS -> OP_FIELDS + DELIMITER + c.id + FileManager.formatFields(c.fields);
+                case FIELDS_DELETE -> OP_FIELDS_DELETE + DELIMITER + c.id;
+            });
+        }
+        return append(lines);
+    }
+
+    // Records written since the last compaction
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    private synchronized boolean append(List<String> lines) {
+        if (lines.isEmpty()) {
+            return true;
+        }
+        Metrics.Timer t = APPEND.time();
+        try {
+            if (writer == null) {
+                File dir = file.getParentFile();
+                if (dir != null && !dir.exists()) {
+                    dir.mkdirs();
+                }
+                out = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            }
+            long length = 0;
+            if (lines.size() > 1) {
+                String header = batchHeader(lines);
+                writer.write(header);
+                writer.newLine();
+                length += header.length() + 1;
+            }
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+                length += line.length() + 1;
+            }
+            writer.flush();
+            if (fsync) {
+                out.getChannel().force(false);
+            }
+            // Characters, which is the UTF-8 byte count for the ASCII the records are almost always made of
+            Metrics.bytesWritten(length);
+            recordCount += lines.size();
+            return true;
+        } catch (IOException ex) {
+            t.fail();
+            System.err.println("Error writing journal: " + ex.getMessage());
+            return false;
+        } finally {
+            t.stop();
+        }
+    }
+
+    // ==================== REPLAY ====================
+
+    // Apply the rotated and current journal on top of the loaded snapshot; returns records applied
+    public synchronized int replay(Map<Integer, Event> events, Map<Integer, RecurrenceRule> rules,
+                                   Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        int applied = read(events, rules, fields);
+        recordCount = applied;
+        return applied;
+    }
+
+    // Apply the journal like replay, for a reader that is not starting the journal up
+    synchronized int read(Map<Integer, Event> events, Map<Integer, RecurrenceRule> rules,
+                          Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        return replayFile(rotatedFile, events, rules, fields) + replayFile(file, events, rules, fields);
+    }
+
+    private int replayFile(File source, Map<Integer, Event> events, Map<Integer, RecurrenceRule> rules,
+                           Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        if (!source.exists()) {
+            return 0;
+        }
+        Metrics.bytesRead(source.length());
+        int applied = 0;
+        try (BufferedReader br = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNum = 0;
+            while ((line = br.readLine()) != null) {
+                lineNum++;
+                if (line.trim().isEmpty()) continue;
+                int first = lineNum;
+                List<String> records = List.of(line);
+                try {
+                    if (line.startsWith(OP_BATCH + DELIMITER)) {
+                        String header = line;
+                        int size = Integer.parseInt(header.split("\\|\\|", -1)[1].trim());
+                        records = new ArrayList<>(size);
+                        while (records.size() < size && (line = br.readLine()) != null) {
+                            lineNum++;
+                            records.add(line);
+                        }
+                        if (!batchHeader(records).equals(header)) {
+                            // Torn by a crash while it was written
+                            throw new IllegalArgumentException("incomplete batch of " + size + " records");
+                        }
+                    }
+                    // Parse the whole batch before applying any of it
+                    List<Runnable> changes = new ArrayList<>(records.size());
+                    for (String record : records) {
+                        changes.add(parseRecord(record, events, rules, fields));
+                    }
+                    changes.forEach(Runnable::run);
+                    applied += records.size();
+                } catch (RuntimeException e) {
+                    // A torn final record after a crash lands here too
+                    System.err.println("Skipping journal record " + first + " in " + source + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading journal: " + e.getMessage());
+        }
+        return applied;
+    }
+
+    // The change one record makes to the replayed state
+    private static Runnable parseRecord(String line, Map<Integer, Event> events, Map<Integer, RecurrenceRule> rules,
+                                        Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        String[] parts = line.split("\\|\\|", -1);
+        switch (parts[0]) {
+            case OP_EVENT -> {
+                Event e = FileManager.parseEvent(parts, 1);
+                AdditionalFieldManager.AdditionalFields f = parts.length > 11 ? parseFields(parts, 11) : null;
+                return () -> {
+                    events.put(e.getEventId(), e);
+                    if (f != null) {
+                        fields.put(e.getEventId(), f);
+                    }
+                };
+            }
+            case OP_DELETE -> {
+                int id = Integer.parseInt(parts[1].trim());
+                return () -> events.remove(id);
+            }
+            case OP_FIELDS -> {
+                int id = Integer.parseInt(parts[1].trim());
+                AdditionalFieldManager.AdditionalFields f = parseFields(parts, 2);
+                return () -> fields.put(id, f);
+            }
+            case OP_FIELDS_DELETE -> {
+                int id = Integer.parseInt(parts[1].trim());
+                return () -> fields.remove(id);
+            }
+            case OP_RULE -> {
+                RecurrenceRule r = FileManager.parseRule(parts, 1);
+                return () -> rules.put(r.getSeriesId(), r);
+            }
+            case OP_RULE_DELETE -> {
+                int id = Integer.parseInt(parts[1].trim());
+                return () -> rules.remove(id);
+            }
+            default -> throw new IllegalArgumentException("unknown record type " + parts[0]);
+        }
+    }
+
+    private static AdditionalFieldManager.AdditionalFields parseFields(String[] parts, int offset) {
+        return new AdditionalFieldManager.AdditionalFields(parts[offset], parts[offset + 1], parts[offset + 2]);
+    }
+
+    // "B||count||crc": the CRC32C of the records that follow, so a torn batch is recognized
+    private static String batchHeader(List<String> records) {
+        CRC32C crc = new CRC32C();
+        for (String record : records) {
+            crc.update(record.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return OP_BATCH + DELIMITER + records.size() + DELIMITER + Long.toHexString(crc.getValue());
+    }
+
+    // ==================== COMPACTION ====================
+
+    // Rotate the journal and rewrite the snapshot in the background; the arguments must be private copies
+    public synchronized void compactAsync(List<Event> events, List<RecurrenceRule> rules,
+                                          Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        if (pendingCompaction != null && !pendingCompaction.isDone()) {
+            return;
+        }
+        if (rotatedFile.exists()) {
+            // Left over from an interrupted compaction; the in-memory state already includes it
+            compactNow(events, rules, fields);
+            return;
+        }
+        closeWriter();
+        try {
+            if (file.exists()) {
+                moveFile(file, rotatedFile);
+            }
+        } catch (IOException ex) {
+            System.err.println("Error rotating journal: " + ex.getMessage());
+            return;
+        }
+        recordCount = 0;
+        pendingCompaction = compactor.submit(() -> {
+            // On failure the rotated journal stays, and is replayed on load and folded into the next compaction
+            if (writeSnapshot(events, rules, fields)) {
+                rotatedFile.delete();
+            }
+        });
+    }
+
+    // Rewrite the snapshot on the calling thread and discard the whole journal; false if it could not be written
+    public synchronized boolean compactNow(List<Event> events, List<RecurrenceRule> rules,
+                                           Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        awaitCompaction();
+        closeWriter();
+        if (!writeSnapshot(events, rules, fields)) {
+            // Keep both journals; they still hold every change the old snapshot lacks
+            return false;
+        }
+        rotatedFile.delete();
+        file.delete();
+        recordCount = 0;
+        return true;
+    }
+
+    // Discard the whole journal once its records are in a snapshot the caller wrote itself
+    public synchronized void clear() {
+        awaitCompaction();
+        closeWriter();
+        rotatedFile.delete();
+        file.delete();
+        recordCount = 0;
+    }
+
+    // Block until any background compaction has finished
+    public synchronized void awaitCompaction() {
+        if (pendingCompaction == null) {
+            return;
+        }
+        try {
+            pendingCompaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Journal compaction failed: " + e.getCause().getMessage());
+        }
+        pendingCompaction = null;
+    }
+
+    public synchronized void close() {
+        awaitCompaction();
+        closeWriter();
+        compactor.shutdown();
+    }
+
+    // Events, rules and fields go into one atomically replaced file; false if it could not be written
+    private boolean writeSnapshot(List<Event> events, List<RecurrenceRule> rules,
+                                  Map<Integer, AdditionalFieldManager.AdditionalFields> fields) {
+        Metrics.Timer t = COMPACT.time();
+        try {
+            boolean written = FileManager.saveSnapshot(file.getAbsoluteFile().getParentFile(), events, rules, fields);
+            if (!written) {
+                t.fail();
+            }
+            return written;
+        } finally {
+            t.stop();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            System.err.println("Error closing journal: " + ex.getMessage());
+        }
+        writer = null;
+        out = null;
+    }
+
+    private static void moveFile(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package calenderapp;
+
+import java.time.LocalDateTime;
+
+/**
+ * One event to be created by EventManager.importEvents: the values a caller
+ * would pass to createEvent, without an id. Nothing is validated here;
+ * invalid specs are reported per row in the ImportResult.
+ */
+public class EventSpec {
+    private final String title;
+    private final String description;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final int reminderMinutes;
+    private final AdditionalFieldManager.AdditionalFields fields;
+
+    public EventSpec(String title, String description, LocalDateTime start, LocalDateTime end) {
+        this(title, description, start, end, 0, null);
+    }
+
+    // fields may be null when the event has no location, category or attendees
+    public EventSpec(String title, String description, LocalDateTime start, LocalDateTime end,
+                     int reminderMinutes, AdditionalFieldManager.AdditionalFields fields) {
+        this.title = title;
+        this.description = description;
+        this.start = start;
+        this.end = end;
+        this.reminderMinutes = reminderMinutes;
+        this.fields = fields;
+    }
+
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public LocalDateTime getStart() { return start; }
+    public LocalDateTime getEnd() { return end; }
+    public int getReminderMinutes() { return reminderMinutes; }
+    public AdditionalFieldManager.AdditionalFields getFields() { return fields; }
+
+    // Validated event with the given id; throws IllegalArgumentException like the Event setters
+    Event toEvent(int id) {
+        Event e = new Event(id, title, description, start, end);
+        e.setReminderMinutes(reminderMinutes);
+        return e;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventSpec: %s (%s to %s)", title, start, end);
+    }
+}
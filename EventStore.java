@@ -0,0 +1,120 @@
+package calenderapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Where EventManager keeps its events, recurrence rules and additional
+ * fields. A store hands everything over once at start-up, then receives
+ * each change as a set of point upserts and deletes that it applies as one
+ * unit, and can answer range, series and keyword queries over what it holds
+ * without the manager's in-memory indexes.
+ *
+ * Implementations: JournalEventStore (binary snapshot plus append-only
+ * journal, the default), PartitionedEventStore (one file per month, for
+ * windowed managers), JdbcEventStore (an embedded SQL database) and
+ * CsvEventStore (one ||-delimited file, rewritten on every change, so for
+ * import and export rather than as a live store).
+ */
+public interface EventStore extends Closeable {
+
+    // Events, recurrence rules and additional fields as of the last write
+    BinarySnapshot.Contents load() throws IOException;
+
+    // Apply changes as one unit; the store must not keep references to the objects in it. A store
+    // that cannot may throw UncheckedIOException, and the manager then fails the mutation
+    void write(Changes changes);
+
+    // True once the store should be given the full state (liveRecords: events plus rules held)
+    boolean needsCompaction(int liveRecords);
+
+    // Rewrite the store from the full state, in the background unless wait is set; state returns
+    // private copies and is only called if the store has something to do
+    void compact(Supplier<BinarySnapshot.Contents> state, boolean wait);
+
+    // Replace everything stored with contents before returning
+    void replaceAll(BinarySnapshot.Contents contents);
+
+    // Stored events starting in [from, to), ordered by start then id; rules are not expanded
+    List<Event> findEvents(LocalDateTime from, LocalDateTime to) throws IOException;
+
+    // Stored events of a series, ordered by id
+    List<Event> findSeries(int seriesId) throws IOException;
+
+    // Stored events whose title or description contains keyword (ignoring case), ordered by id
+    List<Event> findByKeyword(String keyword) throws IOException;
+
+    @Override
+    void close();
+
+    // Point upserts and deletes applied together, in order
+    final class Changes {
+        enum Kind { EVENT, DELETE, RULE, RULE_DELETE, FIELDS, FIELDS_DELETE }
+
+        // One upsert or delete; only the members its kind uses are set
+        static final class Change {
+            final Kind kind;
+            final int id;
+            final Event event;
+            final RecurrenceRule rule;
+            final AdditionalFieldManager.AdditionalFields fields;
+
+            private Change(Kind kind, int id, Event event, RecurrenceRule rule,
+                           AdditionalFieldManager.AdditionalFields fields) {
+                this.kind = kind;
+                this.id = id;
+                this.event = event;
+                this.rule = rule;
+                this.fields = fields;
+            }
+        }
+
+        private final List<Change> changes = new ArrayList<>();
+
+        // An event, and its additional fields when f is not null
+        public Changes event(Event e, AdditionalFieldManager.AdditionalFields f) {
+            changes.add(new Change(Kind.EVENT, e.getEventId(), e, null, f));
+            return this;
+        }
+
+        public Changes delete(int eventId) {
+            changes.add(new Change(Kind.DELETE, eventId, null, null, null));
+            return this;
+        }
+
+        public Changes rule(RecurrenceRule r) {
+            changes.add(new Change(Kind.RULE, r.getSeriesId(), null, r, null));
+            return this;
+        }
+
+        public Changes ruleDelete(int seriesId) {
+            changes.add(new Change(Kind.RULE_DELETE, seriesId, null, null, null));
+            return this;
+        }
+
+        public Changes fields(int eventId, AdditionalFieldManager.AdditionalFields f) {
+            changes.add(new Change(Kind.FIELDS, eventId, null, null, f));
+            return this;
+        }
+
+        public Changes fieldsDelete(int eventId) {
+            changes.add(new Change(Kind.FIELDS_DELETE, eventId, null, null, null));
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        public int size() {
+            return changes.size();
+        }
+
+        List<Change> list() {
+            return changes;
+        }
+    }
+}
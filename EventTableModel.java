@@ -0,0 +1,174 @@
+package calenderapp;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Table of every event (rule occurrences expanded) ordered by start, read
+ * on demand from the manager's published CalendarSnapshot. Nothing is
+ * copied into the model: a JTable only asks for the rows it paints, and
+ * each lookup is a binary search over the snapshot's day lists. The model
+ * follows the manager through its change listener and fires row updates,
+ * inserts and deletes for just the days each change rebuilt. All state is
+ * confined to the event dispatch thread.
+ */
+public class EventTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"ID", "Title", "Start", "End"};
+    private static final Class<?>[] TYPES = {Integer.class, String.class, LocalDateTime.class, LocalDateTime.class};
+
+    // Null until loaded; rows is snapshot.getEvents()
+    private CalendarSnapshot snapshot;
+    private List<Event> rows = List.of();
+    // Newest snapshot published while loading, applied when the load completes
+    private CalendarSnapshot pending;
+    private EventManager manager;
+
+    // Open the manager and build its first snapshot off the event dispatch thread; the rows appear
+    // when both are done, and onLoaded (may be null) then runs on the event dispatch thread
+    public SwingWorker<EventManager, Void> load(Supplier<EventManager> opener, Runnable onLoaded) {
+        SwingWorker<EventManager, Void> worker = new SwingWorker<>() {
+            private CalendarSnapshot loaded;
+
+            @Override
+            protected EventManager doInBackground() {
+                EventManager opened = opener.get();
+                // Listening first, so no change published after the snapshot is missed
+                opened.addChangeListener(EventTableModel.this::snapshotPublished);
+                loaded = opened.snapshot();
+                return opened;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    manager = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error loading events: " + e.getMessage());
+                    return;
+                }
+                CalendarSnapshot first = pending != null && pending.getVersion() > loaded.getVersion() ? pending : loaded;
+                pending = null;
+                show(first);
+                if (onLoaded != null) {
+                    onLoaded.run();
+                }
+            }
+        };
+        worker.execute();
+        return worker;
+    }
+
+    // Null until the load completes
+    public EventManager getManager() {
+        return manager;
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    public Event getEventAt(int row) {
+        return rows.get(row);
+    }
+
+    // Row of the first event starting on or after date (the row count if there is none)
+    public int rowOf(LocalDate date) {
+        return snapshot == null ? 0 : snapshot.indexOf(date);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Event e = rows.get(row);
+        return switch (column) {
+            case 0 -> e.getEventId();
+            case 1 -> e.getTitle();
+            case 2 -> e.getStart();
+            case 3 -> e.getEnd();
+            default -> throw new IndexOutOfBoundsException("Column: " + column);
+        };
+    }
+
+    // ==================== CHANGES ====================
+
+    // Called on the thread that made the change; the days are copied before leaving it
+    private void snapshotPublished(CalendarSnapshot published, Set<LocalDate> days) {
+        SortedSet<LocalDate> changed = new TreeSet<>(days);
+        if (SwingUtilities.isEventDispatchThread()) {
+            apply(published, changed);
+        } else {
+            SwingUtilities.invokeLater(() -> apply(published, changed));
+        }
+    }
+
+    private void apply(CalendarSnapshot published, SortedSet<LocalDate> days) {
+        if (snapshot == null) {
+            if (pending == null || published.getVersion() > pending.getVersion()) {
+                pending = published;
+            }
+            return;
+        }
+        if (published.getVersion() <= snapshot.getVersion()) {
+            return;
+        }
+        CalendarSnapshot previous = snapshot;
+        snapshot = published;
+        rows = published.getEvents();
+        if (published.getVersion() != previous.getVersion() + 1) {
+            // Missed a version, so the days do not describe the whole difference
+            fireTableDataChanged();
+            return;
+        }
+        // In date order each day's rows sit at the same place in both versions once the earlier
+        // days have been fired, so every event uses rows of the new version
+        for (LocalDate day : days) {
+            int first = published.indexOf(day);
+            int before = previous.getEventsForDate(day).size();
+            int after = published.getEventsForDate(day).size();
+            int common = Math.min(before, after);
+            if (common > 0) {
+                fireTableRowsUpdated(first, first + common - 1);
+            }
+            if (after > before) {
+                fireTableRowsInserted(first + common, first + after - 1);
+            } else if (before > after) {
+                fireTableRowsDeleted(first + common, first + before - 1);
+            }
+        }
+    }
+
+    private void show(CalendarSnapshot first) {
+        snapshot = first;
+        rows = first.getEvents();
+        if (!rows.isEmpty()) {
+            fireTableRowsInserted(0, rows.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package calenderapp;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Free/busy queries over a calendar snapshot, recurring occurrences
+ * included. Events overlapping the window are read in start order straight
+ * from the snapshot's day lists (no copy, no sort) and merged into busy
+ * intervals in one sweep; free slots are the gaps between them, clipped to
+ * working hours. A query costs one pass over the events in the window plus
+ * one step per day, and the free-slot search stops as soon as it has found
+ * enough slots.
+ */
+public class FreeBusyFinder {
+    private static final Set<DayOfWeek> EVERY_DAY = EnumSet.allOf(DayOfWeek.class);
+
+    // A half-open time range [start, end)
+    public static class Slot {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        public Slot(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public LocalDateTime getStart() { return start; }
+        public LocalDateTime getEnd() { return end; }
+
+        public Duration getDuration() {
+            return Duration.between(start, end);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Slot && start.equals(((Slot) o).start) && end.equals(((Slot) o).end);
+        }
+
+        @Override
+        public int hashCode() {
+            return start.hashCode() * 31 + end.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return start + " to " + end;
+        }
+    }
+
+    // Receives merged busy intervals in order; returns false to stop the sweep
+    private interface BusyVisitor {
+        boolean visit(LocalDateTime start, LocalDateTime end);
+    }
+
+    // Snapshot holding every event that may overlap a window; a windowed manager pages the window in
+    private final BiFunction<LocalDateTime, LocalDateTime, CalendarSnapshot> snapshots;
+
+    public FreeBusyFinder(EventManager manager) {
+        this.snapshots = manager::snapshot;
+    }
+
+    public FreeBusyFinder(ConcurrentEventManager manager) {
+        this.snapshots = manager::snapshot;
+    }
+
+    // Busy time within [from, to): overlapping and touching events merged, clipped to the window
+    public List<Slot> busyIntervals(LocalDateTime from, LocalDateTime to) {
+        checkWindow(from, to);
+        List<Slot> busy = new ArrayList<>();
+        sweep(from, to, (start, end) -> busy.add(new Slot(start, end)));
+        return busy;
+    }
+
+    // The first limit free slots of at least duration within [from, to) and the daily working hours
+    public List<Slot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration duration,
+                                    LocalTime dayStart, LocalTime dayEnd, int limit) {
+        return findFreeSlots(from, to, duration, dayStart, dayEnd, EVERY_DAY, limit);
+    }
+
+    // As above, on the given working days only. A dayEnd of midnight means the end of the day.
+    // Each slot is a whole free stretch of one day's working hours (it may be longer than duration), earliest first
+    public List<Slot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration duration,
+                                    LocalTime dayStart, LocalTime dayEnd, Set<DayOfWeek> workingDays, int limit) {
+        checkWindow(from, to);
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        if (!dayEnd.equals(LocalTime.MIDNIGHT) && !dayEnd.isAfter(dayStart)) {
+            throw new IllegalArgumentException("Working hours must end after they start");
+        }
+        List<Slot> free = new ArrayList<>();
+        if (limit <= 0 || workingDays.isEmpty()) {
+            return free;
+        }
+        LocalDateTime[] cursor = {from};
+        boolean done = !sweep(from, to, (start, end) -> {
+            addFree(cursor[0], start, duration, dayStart, dayEnd, workingDays, limit, free);
+            cursor[0] = end;
+            return free.size() < limit;
+        });
+        if (!done) {
+            addFree(cursor[0], to, duration, dayStart, dayEnd, workingDays, limit, free);
+        }
+        return free;
+    }
+
+    // Earliest free slot of at least duration, or null if there is none
+    public Slot findFirstFreeSlot(LocalDateTime from, LocalDateTime to, Duration duration,
+                                  LocalTime dayStart, LocalTime dayEnd) {
+        List<Slot> slots = findFreeSlots(from, to, duration, dayStart, dayEnd, 1);
+        return slots.isEmpty() ? null : slots.get(0);
+    }
+
+    // Merge the events overlapping [from, to) into busy intervals; returns false if the visitor stopped it
+    private boolean sweep(LocalDateTime from, LocalDateTime to, BusyVisitor visitor) {
+        CalendarSnapshot snapshot = snapshots.apply(from, to);
+        LocalDateTime busyStart = null;
+        LocalDateTime busyEnd = null;
+        for (Event e : snapshot.overlapping(from, to)) {
+            if (!e.getStart().isBefore(to)) {
+                break;
+            }
+            if (!e.getEnd().isAfter(from)) {
+                continue;
+            }
+            if (busyEnd != null && !e.getStart().isAfter(busyEnd)) {
+                if (e.getEnd().isAfter(busyEnd)) {
+                    busyEnd = e.getEnd();
+                }
+                continue;
+            }
+            if (busyEnd != null && !visitor.visit(busyStart, min(busyEnd, to))) {
+                return false;
+            }
+            busyStart = max(e.getStart(), from);
+            busyEnd = e.getEnd();
+        }
+        return busyEnd == null || visitor.visit(busyStart, min(busyEnd, to));
+    }
+
+    // Add the working-hour parts of the gap [start, end) that are long enough, up to limit slots in total
+    private static void addFree(LocalDateTime start, LocalDateTime end, Duration duration,
+                                LocalTime dayStart, LocalTime dayEnd, Set<DayOfWeek> workingDays,
+                                int limit, List<Slot> free) {
+        if (start.plus(duration).isAfter(end)) {
+            return;
+        }
+        for (LocalDate day = start.toLocalDate(); day.atTime(dayStart).isBefore(end) && free.size() < limit;
+             day = day.plusDays(1)) {
+            if (!workingDays.contains(day.getDayOfWeek())) {
+                continue;
+            }
+            LocalDateTime open = max(start, day.atTime(dayStart));
+            LocalDateTime close = min(end, dayEnd.equals(LocalTime.MIDNIGHT) ? day.plusDays(1).atStartOfDay() : day.atTime(dayEnd));
+            if (open.isBefore(close) && Duration.between(open, close).compareTo(duration) >= 0) {
+                free.add(new Slot(open, close));
+            }
+        }
+    }
+
+    private static void checkWindow(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Start and end times cannot be null");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
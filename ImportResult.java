@@ -0,0 +1,60 @@
+package calenderapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of EventManager.importEvents. Rows are numbered by their position
+ * in the input, starting at 0. Every row either created one event (its id
+ * is in getCreatedIds, in input order) or is listed in getFailures with
+ * the reason it was rejected.
+ */
+public class ImportResult {
+    // A rejected row and the reason it was not imported
+    public static class RowFailure {
+        public final int row;
+        public final EventSpec spec;
+        public final String message;
+
+        public RowFailure(int row, EventSpec spec, String message) {
+            this.row = row;
+            this.spec = spec;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + row + ": " + message;
+        }
+    }
+
+    private final List<Integer> createdIds;
+    private final List<RowFailure> failures;
+
+    ImportResult(List<Integer> createdIds, List<RowFailure> failures) {
+        this.createdIds = Collections.unmodifiableList(new ArrayList<>(createdIds));
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    public List<Integer> getCreatedIds() {
+        return createdIds;
+    }
+
+    public List<RowFailure> getFailures() {
+        return failures;
+    }
+
+    public int getImportedCount() {
+        return createdIds.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + createdIds.size() + " event(s), rejected " + failures.size();
+    }
+}
@@ -0,0 +1,154 @@
+package calenderapp;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive int keys to primitive long
+ * values (linear probing, backward-shift deletion), laid out like
+ * IntHashMap but without boxing the values. Used for per-id timestamps
+ * such as the due times of queued reminders.
+ */
+public class IntLongHashMap {
+    private static final int MIN_CAPACITY = 16;
+
+    // Callback for forEach, taking the key and value unboxed
+    public interface EntryVisitor {
+        void visit(int key, long value);
+    }
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public IntLongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    // The value of key, or missing if it has none
+    public long get(int key, long missing) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean containsKey(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public void put(int key, long value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size * 4 > used.length * 3) {
+            resize(used.length << 1);
+        }
+    }
+
+    // True if key had a value
+    public boolean remove(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // Visit every entry in table order; the map must not be modified meanwhile
+    public void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Close the gap left at index i so probe chains stay unbroken
+    private void shiftBack(int i) {
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) {
+                break;
+            }
+            int home = slot(keys[j]);
+            // Move entry j into the gap unless its home lies cyclically in (gap, j]
+            if (gap <= j ? (home <= gap || home > j) : (home <= gap && home > j)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                while (used[j]) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                used[j] = true;
+            }
+        }
+    }
+}
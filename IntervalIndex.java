@@ -0,0 +1,208 @@
+package calenderapp;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Augmented interval tree over event time ranges.
+ * Nodes are ordered by (start, eventId) and each node keeps the latest end
+ * time found in its subtree, so overlap queries only visit branches that can
+ * still contain a match: O(log n + k).
+ */
+public class IntervalIndex {
+    private Node root;
+    private int size;
+
+    private static class Node {
+        final Event event;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final int id;
+        LocalDateTime maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(Event event) {
+            this.event = event;
+            this.start = event.getStart();
+            this.end = event.getEnd();
+            this.id = event.getEventId();
+            this.maxEnd = end;
+        }
+    }
+
+    // Add an event using its current start/end
+    public void add(Event e) {
+        root = insert(root, new Node(e));
+        size++;
+    }
+
+    // Remove an event; start and id must match the values it was added with
+    public boolean remove(Event e) {
+        return remove(e.getStart(), e.getEventId());
+    }
+
+    public boolean remove(LocalDateTime start, int id) {
+        int before = size;
+        root = delete(root, start, id);
+        return size < before;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // True if any indexed event (other than excludeId) overlaps [start, end)
+    public boolean overlapsAny(LocalDateTime start, LocalDateTime end, int excludeId) {
+        return findFirst(root, start, end, excludeId) != null;
+    }
+
+    // All indexed events (other than excludeId) overlapping [start, end), ordered by start
+    public List<Event> findOverlapping(LocalDateTime start, LocalDateTime end, int excludeId) {
+        List<Event> results = new ArrayList<>();
+        collect(root, start, end, excludeId, results);
+        return results;
+    }
+
+    // ==================== QUERIES ====================
+
+    private Node findFirst(Node n, LocalDateTime start, LocalDateTime end, int excludeId) {
+        while (n != null) {
+            if (!n.maxEnd.isAfter(start)) {
+                return null;
+            }
+            Node hit = findFirst(n.left, start, end, excludeId);
+            if (hit != null) {
+                return hit;
+            }
+            if (!n.start.isBefore(end)) {
+                return null;
+            }
+            if (n.id != excludeId && n.end.isAfter(start)) {
+                return n;
+            }
+            n = n.right;
+        }
+        return null;
+    }
+
+    private void collect(Node n, LocalDateTime start, LocalDateTime end, int excludeId, List<Event> out) {
+        if (n == null || !n.maxEnd.isAfter(start)) {
+            return;
+        }
+        collect(n.left, start, end, excludeId, out);
+        if (!n.start.isBefore(end)) {
+            return;
+        }
+        if (n.id != excludeId && n.end.isAfter(start)) {
+            out.add(n.event);
+        }
+        collect(n.right, start, end, excludeId, out);
+    }
+
+    // ==================== AVL MAINTENANCE ====================
+
+    private static int compare(LocalDateTime start, int id, Node n) {
+        int c = start.compareTo(n.start);
+        return c != 0 ? c : Integer.compare(id, n.id);
+    }
+
+    private Node insert(Node n, Node node) {
+        if (n == null) {
+            return node;
+        }
+        if (compare(node.start, node.id, n) < 0) {
+            n.left = insert(n.left, node);
+        } else {
+            n.right = insert(n.right, node);
+        }
+        return balance(n);
+    }
+
+    private Node delete(Node n, LocalDateTime start, int id) {
+        if (n == null) {
+            return null;
+        }
+        int c = compare(start, id, n);
+        if (c < 0) {
+            n.left = delete(n.left, start, id);
+        } else if (c > 0) {
+            n.right = delete(n.right, start, id);
+        } else {
+            size--;
+            if (n.left == null) return n.right;
+            if (n.right == null) return n.left;
+            Node successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(n.right);
+            successor.left = n.left;
+            return balance(successor);
+        }
+        return balance(n);
+    }
+
+    private Node removeMin(Node n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        n.left = removeMin(n.left);
+        return balance(n);
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        LocalDateTime max = n.end;
+        if (n.left != null && n.left.maxEnd.isAfter(max)) max = n.left.maxEnd;
+        if (n.right != null && n.right.maxEnd.isAfter(max)) max = n.right.maxEnd;
+        n.maxEnd = max;
+    }
+
+    private static Node balance(Node n) {
+        update(n);
+        int diff = height(n.left) - height(n.right);
+        if (diff > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (diff < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
@@ -0,0 +1,312 @@
+package calenderapp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Store in an embedded SQL database reached through JDBC, for example
+ * "jdbc:h2:file:./data/calendar" or "jdbc:sqlite:data/calendar.db" with
+ * the matching driver on the classpath. Events, recurrence rules and
+ * additional fields each have a table; times are stored as UTC epoch
+ * seconds plus nanos, like the binary snapshot, so they sort and compare as
+ * numbers. events is indexed on start time and on seriesId, so range and
+ * series queries are answered by the database. Every write runs in one
+ * transaction; the schema is created on first use and sticks to SQL that
+ * H2 and SQLite both accept.
+ */
+public class JdbcEventStore implements EventStore {
+    private static final String EVENT_COLUMNS = "id, title, description, start_second, start_nano, end_second, " +
+            "end_nano, recurring, recurrence_type, recurrence_count, series_id, reminder_minutes";
+    private static final String RULE_COLUMNS = "series_id, title, description, start_second, start_nano, " +
+            "end_second, end_nano, recurrence_type, occurrence_count, reminder_minutes, cancelled";
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS events (id INTEGER PRIMARY KEY, title VARCHAR NOT NULL, " +
+            "description VARCHAR NOT NULL, start_second BIGINT NOT NULL, start_nano INTEGER NOT NULL, " +
+            "end_second BIGINT NOT NULL, end_nano INTEGER NOT NULL, recurring INTEGER NOT NULL, " +
+            "recurrence_type VARCHAR, recurrence_count INTEGER NOT NULL, series_id INTEGER NOT NULL, " +
+            "reminder_minutes INTEGER NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS events_start ON events (start_second)",
+        "CREATE INDEX IF NOT EXISTS events_series ON events (series_id)",
+        "CREATE TABLE IF NOT EXISTS rules (series_id INTEGER PRIMARY KEY, title VARCHAR NOT NULL, " +
+            "description VARCHAR NOT NULL, start_second BIGINT NOT NULL, start_nano INTEGER NOT NULL, " +
+            "end_second BIGINT NOT NULL, end_nano INTEGER NOT NULL, recurrence_type VARCHAR NOT NULL, " +
+            "occurrence_count INTEGER NOT NULL, reminder_minutes INTEGER NOT NULL, cancelled VARCHAR NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS event_fields (event_id INTEGER PRIMARY KEY, location VARCHAR NOT NULL, " +
+            "category VARCHAR NOT NULL, attendees VARCHAR NOT NULL)"
+    };
+
+    private final Connection connection;
+    private final PreparedStatement insertEvent;
+    private final PreparedStatement deleteEvent;
+    private final PreparedStatement insertRule;
+    private final PreparedStatement deleteRule;
+    private final PreparedStatement insertFields;
+    private final PreparedStatement deleteFields;
+
+    public JdbcEventStore(String url) throws SQLException {
+        connection = DriverManager.getConnection(url);
+        try (Statement st = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                st.executeUpdate(ddl);
+            }
+        }
+        connection.setAutoCommit(false);
+        insertEvent = connection.prepareStatement("INSERT INTO events (" + EVENT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        deleteEvent = connection.prepareStatement("DELETE FROM events WHERE id = ?");
+        insertRule = connection.prepareStatement("INSERT INTO rules (" + RULE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        deleteRule = connection.prepareStatement("DELETE FROM rules WHERE series_id = ?");
+        insertFields = connection.prepareStatement("INSERT INTO event_fields (event_id, location, category, attendees) VALUES (?, ?, ?, ?)");
+        deleteFields = connection.prepareStatement("DELETE FROM event_fields WHERE event_id = ?");
+    }
+
+    @Override
+    public synchronized BinarySnapshot.Contents load() throws IOException {
+        try (Statement st = connection.createStatement()) {
+            List<Event> events = readEvents(st.executeQuery("SELECT " + EVENT_COLUMNS + " FROM events ORDER BY id"));
+            List<RecurrenceRule> rules = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT " + RULE_COLUMNS + " FROM rules ORDER BY series_id")) {
+                while (rs.next()) {
+                    rules.add(readRule(rs));
+                }
+            }
+            Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+            try (ResultSet rs = st.executeQuery("SELECT event_id, location, category, attendees FROM event_fields")) {
+                while (rs.next()) {
+                    fields.put(rs.getInt(1), new AdditionalFieldManager.AdditionalFields(
+                            rs.getString(2), rs.getString(3), rs.getString(4)));
+                }
+            }
+            connection.commit();
+            return new BinarySnapshot.Contents(events, rules, fields);
+        } catch (SQLException e) {
+            throw new IOException("Error loading from database: " + e.getMessage(), e);
+        }
+    }
+
+    // Upserts are a delete and an insert, which every database accepts. A failed write is rolled back
+    // and thrown, so the mutation that made it fails too
+    @Override
+    public synchronized void write(Changes changes) {
+        try {
+            for (Changes.Change c : changes.list()) {
+                switch (c.kind) {
+                    case EVENT -> {
+                        update(deleteEvent, c.id);
+                        bindEvent(insertEvent, c.event).executeUpdate();
+                        if (c.fields != null) {
+                            update(deleteFields, c.id);
+                            bindFields(insertFields, c.id, c.fields).executeUpdate();
+                        }
+                    }
+                    case DELETE -> update(deleteEvent, c.id);
+                    case RULE -> {
+                        update(deleteRule, c.id);
+                        bindRule(insertRule, c.rule).executeUpdate();
+                    }
+                    case RULE_DELETE -> update(deleteRule, c.id);
+                    case FIELDS -> {
+                        update(deleteFields, c.id);
+                        bindFields(insertFields, c.id, c.fields).executeUpdate();
+                    }
+                    case FIELDS_DELETE -> update(deleteFields, c.id);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new UncheckedIOException(new IOException("Error writing to database: " + e.getMessage(), e));
+        }
+    }
+
+    // Each write is already in place
+    @Override
+    public boolean needsCompaction(int liveRecords) {
+        return false;
+    }
+
+    @Override
+    public void compact(Supplier<BinarySnapshot.Contents> state, boolean wait) {
+    }
+
+    // All or nothing, like write
+    @Override
+    public synchronized void replaceAll(BinarySnapshot.Contents contents) {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM events");
+            st.executeUpdate("DELETE FROM rules");
+            st.executeUpdate("DELETE FROM event_fields");
+            for (Event e : contents.events) {
+                bindEvent(insertEvent, e).addBatch();
+            }
+            insertEvent.executeBatch();
+            for (RecurrenceRule r : contents.rules) {
+                bindRule(insertRule, r).addBatch();
+            }
+            insertRule.executeBatch();
+            for (Map.Entry<Integer, AdditionalFieldManager.AdditionalFields> entry : contents.fields.entrySet()) {
+                bindFields(insertFields, entry.getKey(), entry.getValue()).addBatch();
+            }
+            insertFields.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new UncheckedIOException(new IOException("Error replacing database contents: " + e.getMessage(), e));
+        }
+    }
+
+    // Uses the start-time index; seconds narrow the scan, nanos are checked here
+    @Override
+    public synchronized List<Event> findEvents(LocalDateTime from, LocalDateTime to) throws IOException {
+        String sql = "SELECT " + EVENT_COLUMNS + " FROM events WHERE start_second >= ? AND start_second <= ? " +
+                     "ORDER BY start_second, start_nano, id";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, from.toEpochSecond(ZoneOffset.UTC));
+            ps.setLong(2, to.toEpochSecond(ZoneOffset.UTC));
+            List<Event> found = readEvents(ps.executeQuery());
+            connection.commit();
+            found.removeIf(e -> e.getStart().isBefore(from) || !e.getStart().isBefore(to));
+            return found;
+        } catch (SQLException e) {
+            throw new IOException("Error querying database: " + e.getMessage(), e);
+        }
+    }
+
+    // Uses the seriesId index
+    @Override
+    public synchronized List<Event> findSeries(int seriesId) throws IOException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + EVENT_COLUMNS + " FROM events WHERE series_id = ? ORDER BY id")) {
+            ps.setInt(1, seriesId);
+            List<Event> found = readEvents(ps.executeQuery());
+            connection.commit();
+            return found;
+        } catch (SQLException e) {
+            throw new IOException("Error querying database: " + e.getMessage(), e);
+        }
+    }
+
+    // A LIKE scan; SQLite lower-cases ASCII letters only
+    @Override
+    public synchronized List<Event> findByKeyword(String keyword) throws IOException {
+        String pattern = "%" + keyword.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT " + EVENT_COLUMNS + " FROM events WHERE LOWER(title) LIKE ? ESCAPE '\\' " +
+                "OR LOWER(description) LIKE ? ESCAPE '\\' ORDER BY id")) {
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            List<Event> found = readEvents(ps.executeQuery());
+            connection.commit();
+            return found;
+        } catch (SQLException e) {
+            throw new IOException("Error querying database: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing database: " + e.getMessage());
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back: " + e.getMessage());
+        }
+    }
+
+    private static void update(PreparedStatement ps, int id) throws SQLException {
+        ps.setInt(1, id);
+        ps.executeUpdate();
+    }
+
+    private static PreparedStatement bindEvent(PreparedStatement ps, Event e) throws SQLException {
+        ps.setInt(1, e.getEventId());
+        ps.setString(2, e.getTitle());
+        ps.setString(3, e.getDescription());
+        ps.setLong(4, e.getStart().toEpochSecond(ZoneOffset.UTC));
+        ps.setInt(5, e.getStart().getNano());
+        ps.setLong(6, e.getEnd().toEpochSecond(ZoneOffset.UTC));
+        ps.setInt(7, e.getEnd().getNano());
+        ps.setInt(8, e.isRecurring() ? 1 : 0);
+        ps.setString(9, e.getRecurrenceType());
+        ps.setInt(10, e.getRecurrenceCount());
+        ps.setInt(11, e.getSeriesId());
+        ps.setInt(12, e.getReminderMinutes());
+        return ps;
+    }
+
+    private static PreparedStatement bindRule(PreparedStatement ps, RecurrenceRule r) throws SQLException {
+        StringBuilder cancelled = new StringBuilder();
+        BitSet bits = r.getCancelled();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            if (cancelled.length() > 0) cancelled.append(',');
+            cancelled.append(i);
+        }
+        ps.setInt(1, r.getSeriesId());
+        ps.setString(2, r.getTitle());
+        ps.setString(3, r.getDescription());
+        ps.setLong(4, r.getStart().toEpochSecond(ZoneOffset.UTC));
+        ps.setInt(5, r.getStart().getNano());
+        ps.setLong(6, r.getEnd().toEpochSecond(ZoneOffset.UTC));
+        ps.setInt(7, r.getEnd().getNano());
+        ps.setString(8, r.getRecurrenceType());
+        ps.setInt(9, r.getCount());
+        ps.setInt(10, r.getReminderMinutes());
+        ps.setString(11, cancelled.toString());
+        return ps;
+    }
+
+    private static PreparedStatement bindFields(PreparedStatement ps, int eventId,
+                                                AdditionalFieldManager.AdditionalFields f) throws SQLException {
+        ps.setInt(1, eventId);
+        ps.setString(2, f.location == null ? "" : f.location);
+        ps.setString(3, f.category == null ? "" : f.category);
+        ps.setString(4, f.attendees == null ? "" : f.attendees);
+        return ps;
+    }
+
+    // Rows in EVENT_COLUMNS order; closes the result set
+    private static List<Event> readEvents(ResultSet rs) throws SQLException {
+        List<Event> events = new ArrayList<>();
+        try (rs) {
+            while (rs.next()) {
+                Event e = new Event(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                    time(rs.getLong(4), rs.getInt(5)), time(rs.getLong(6), rs.getInt(7)));
+                e.setRecurring(rs.getInt(8) != 0);
+                e.setRecurrenceType(rs.getString(9));
+                e.setRecurrenceCount(rs.getInt(10));
+                e.setSeriesId(rs.getInt(11));
+                e.setReminderMinutes(rs.getInt(12));
+                events.add(e);
+            }
+        }
+        return events;
+    }
+
+    private static RecurrenceRule readRule(ResultSet rs) throws SQLException {
+        RecurrenceRule r = new RecurrenceRule(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                              time(rs.getLong(4), rs.getInt(5)), time(rs.getLong(6), rs.getInt(7)),
+                                              rs.getString(8), rs.getInt(9), rs.getInt(10));
+        String cancelled = rs.getString(11);
+        if (!cancelled.isEmpty()) {
+            for (String index : cancelled.split(",")) {
+                r.cancel(Integer.parseInt(index));
+            }
+        }
+        return r;
+    }
+
+    private static LocalDateTime time(long epochSecond, int nano) {
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,133 @@
+package calenderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The default store: a binary snapshot (events.bin) plus an append-only
+ * journal (events.journal) in one directory. A change costs one journal
+ * append; once the journal holds as many records as the calendar has
+ * events and rules, it is folded into a new snapshot in the background.
+ * Nothing is kept in memory here, so the find methods load the stored
+ * state and scan it; EventManager answers its own queries from its indexes.
+ */
+public class JournalEventStore implements EventStore {
+    // The journal is compacted once it holds at least this many records (or one per live event)
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+
+    private final File dir;
+    private final EventJournal journal;
+
+    // Store in the default data directory; the journal is fsynced if -Dcalendar.journal.fsync=true
+    public JournalEventStore() {
+        this(new File(FileManager.DATA_DIR), Boolean.getBoolean("calendar.journal.fsync"));
+    }
+
+    public JournalEventStore(File dir, boolean fsync) {
+        this.dir = dir;
+        this.journal = new EventJournal(new File(dir, FileManager.JOURNAL_FILE).getPath(), fsync);
+    }
+
+    // The snapshot with the journal replayed on top
+    @Override
+    public BinarySnapshot.Contents load() {
+        return read(true);
+    }
+
+    // The stored state; only start-up (starting) resets the journal's record count
+    private BinarySnapshot.Contents read(boolean starting) {
+        // A compaction in flight would swap the snapshot and drop the rotated journal mid-read
+        journal.awaitCompaction();
+        BinarySnapshot.Contents data = FileManager.loadSnapshot(dir);
+        Map<Integer, Event> events = new LinkedHashMap<>();
+        for (Event e : data.events) {
+            events.put(e.getEventId(), e);
+        }
+        Map<Integer, RecurrenceRule> rules = new LinkedHashMap<>();
+        for (RecurrenceRule r : data.rules) {
+            rules.put(r.getSeriesId(), r);
+        }
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = data.fields;
+        int applied = starting ? journal.replay(events, rules, fields) : journal.read(events, rules, fields);
+        if (applied == 0) {
+            return data;
+        }
+        return new BinarySnapshot.Contents(new ArrayList<>(events.values()), new ArrayList<>(rules.values()), fields);
+    }
+
+    // A batch the journal could not append fails the mutation
+    @Override
+    public void write(Changes changes) {
+        if (!journal.append(changes)) {
+            throw new UncheckedIOException(new IOException("Error writing journal in " + dir));
+        }
+    }
+
+    @Override
+    public boolean needsCompaction(int liveRecords) {
+        return journal.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, liveRecords);
+    }
+
+    @Override
+    public void compact(Supplier<BinarySnapshot.Contents> state, boolean wait) {
+        BinarySnapshot.Contents contents = state.get();
+        if (wait) {
+            journal.compactNow(contents.events, contents.rules, contents.fields);
+        } else {
+            journal.compactAsync(contents.events, contents.rules, contents.fields);
+        }
+    }
+
+    @Override
+    public void replaceAll(BinarySnapshot.Contents contents) {
+        if (!journal.compactNow(contents.events, contents.rules, contents.fields)) {
+            throw new UncheckedIOException(new IOException("Error writing snapshot in " + dir));
+        }
+    }
+
+    @Override
+    public List<Event> findEvents(LocalDateTime from, LocalDateTime to) {
+        List<Event> found = new ArrayList<>();
+        for (Event e : read(false).events) {
+            if (!e.getStart().isBefore(from) && e.getStart().isBefore(to)) {
+                found.add(e);
+            }
+        }
+        found.sort(Comparator.comparing(Event::getStart).thenComparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public List<Event> findSeries(int seriesId) {
+        List<Event> found = new ArrayList<>();
+        for (Event e : read(false).events) {
+            if (e.getSeriesId() == seriesId) {
+                found.add(e);
+            }
+        }
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public List<Event> findByKeyword(String keyword) {
+        String lower = keyword.toLowerCase();
+        List<Event> found = new ArrayList<>();
+        for (Event e : read(false).events) {
+            if (e.getTitle().toLowerCase().contains(lower) || e.getDescription().toLowerCase().contains(lower)) {
+                found.add(e);
+            }
+        }
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,301 @@
+package calenderapp;
+
+import java.util.*;
+
+/**
+ * Trigram inverted index for case-insensitive substring search.
+ * Every document (an id plus one or more text fields) is lower-cased and
+ * each three-character window is posted to a sorted id list. A query
+ * intersects the posting lists of its own trigrams, starting from the
+ * shortest, and confirms the survivors with String.contains, so its cost
+ * follows the number of candidates rather than the number of documents.
+ * Terms shorter than three characters cannot be looked up by trigram and
+ * fall back to scanning the stored text.
+ */
+public class KeywordIndex {
+    private static final int GRAM = 3;
+    // Joins the fields of a document so no trigram or match spans two fields
+    private static final char SEPARATOR = '\u0000';
+
+    private final IntHashMap<String> documents = new IntHashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    // Index (or re-index) a document; null fields are ignored
+    public void put(int id, String... fields) {
+        remove(id);
+        String doc = join(fields);
+        documents.put(id, doc);
+        for (int i = 0; i + GRAM <= doc.length(); i++) {
+            long gram = gram(doc, i);
+            if (gram >= 0) {
+                postings.computeIfAbsent(gram, k -> new Postings()).add(id);
+            }
+        }
+    }
+
+    public void remove(int id) {
+        String doc = documents.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM <= doc.length(); i++) {
+            long gram = gram(doc, i);
+            Postings p = gram < 0 ? null : postings.get(gram);
+            if (p != null && p.remove(id) && p.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // Index (or re-index) many documents at once. Each posting list they touch is merged once, instead of
+    // shifted once per id, so loading a batch of events costs about one pass over the affected lists
+    public void putAll(Map<Integer, String[]> docs) {
+        removeAll(docs.keySet());
+        Map<Long, Postings> added = new HashMap<>();
+        for (Map.Entry<Integer, String[]> entry : docs.entrySet()) {
+            String doc = join(entry.getValue());
+            documents.put(entry.getKey(), doc);
+            for (int i = 0; i + GRAM <= doc.length(); i++) {
+                long gram = gram(doc, i);
+                if (gram >= 0) {
+                    added.computeIfAbsent(gram, k -> new Postings()).append(entry.getKey());
+                }
+            }
+        }
+        added.forEach((gram, ids) -> {
+            ids.sortUnique();
+            postings.computeIfAbsent(gram, k -> new Postings()).merge(ids);
+        });
+    }
+
+    // Remove many documents at once, compacting each posting list they touch in one pass
+    public void removeAll(Collection<Integer> ids) {
+        Map<Long, Postings> removed = new HashMap<>();
+        for (int id : ids) {
+            String doc = documents.remove(id);
+            if (doc == null) {
+                continue;
+            }
+            for (int i = 0; i + GRAM <= doc.length(); i++) {
+                long gram = gram(doc, i);
+                if (gram >= 0) {
+                    removed.computeIfAbsent(gram, k -> new Postings()).append(id);
+                }
+            }
+        }
+        removed.forEach((gram, gone) -> {
+            Postings p = postings.get(gram);
+            if (p != null) {
+                gone.sortUnique();
+                p.removeAll(gone);
+                if (p.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        });
+    }
+
+    public void clear() {
+        documents.clear();
+        postings.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // True if any field of document id contains keyword (ignoring case)
+    public boolean matches(int id, String keyword) {
+        String doc = documents.get(id);
+        return doc != null && doc.contains(keyword.toLowerCase());
+    }
+
+    // Ids of documents with a field containing keyword (ignoring case), in ascending order
+    public int[] search(String keyword) {
+        String term = keyword.toLowerCase();
+        if (term.length() < GRAM) {
+            return scan(term);
+        }
+
+        // Posting lists of the term's trigrams, shortest first
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            long gram = gram(term, i);
+            Postings p = gram < 0 ? null : postings.get(gram);
+            if (p == null) {
+                return new int[0];
+            }
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        // Candidates ascend, so each longer list is walked forward once with a galloping cursor
+        Postings shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        int[] results = new int[shortest.size];
+        int count = 0;
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int id = shortest.ids[i];
+            for (int l = 1; l < lists.size(); l++) {
+                Postings p = lists.get(l);
+                cursors[l] = p.seek(cursors[l], id);
+                if (cursors[l] == p.size) {
+                    break candidates;
+                }
+                if (p.ids[cursors[l]] != id) {
+                    continue candidates;
+                }
+            }
+            // The trigrams may occur in a different order or in separate fields
+            if (documents.get(id).contains(term)) {
+                results[count++] = id;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    private int[] scan(String term) {
+        int[] results = new int[documents.size()];
+        int[] count = new int[1];
+        documents.forEach((id, doc) -> {
+            if (doc.contains(term)) {
+                results[count[0]++] = id;
+            }
+        });
+        int[] found = Arrays.copyOf(results, count[0]);
+        Arrays.sort(found);
+        return found;
+    }
+
+    // Lower-cased fields joined by SEPARATOR
+    private static String join(String... fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (text.length() > 0) {
+                text.append(SEPARATOR);
+            }
+            if (field != null) {
+                text.append(field.toLowerCase());
+            }
+        }
+        return text.toString();
+    }
+
+    // The three chars at text[i] packed into a long, or -1 if they cross a field boundary
+    private static long gram(String text, int i) {
+        char a = text.charAt(i);
+        char b = text.charAt(i + 1);
+        char c = text.charAt(i + 2);
+        if (a == SEPARATOR || b == SEPARATOR || c == SEPARATOR) {
+            return -1;
+        }
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    // Sorted, duplicate-free ids of the documents containing one trigram
+    private static class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            // Ids usually arrive in increasing order, so try the end first
+            if (size == 0 || ids[size - 1] < id) {
+                insert(size, id);
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                insert(-at - 1, id);
+            }
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        // Unordered add, for a batch that is sorted before use
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void sortUnique() {
+            Arrays.sort(ids, 0, size);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (n == 0 || ids[n - 1] != ids[i]) {
+                    ids[n++] = ids[i];
+                }
+            }
+            size = n;
+        }
+
+        // Add the sorted ids of other in one merge pass
+        void merge(Postings other) {
+            int[] merged = new int[size + other.size];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                int id;
+                if (j == other.size || (i < size && ids[i] < other.ids[j])) {
+                    id = ids[i++];
+                } else if (i == size || other.ids[j] < ids[i]) {
+                    id = other.ids[j++];
+                } else {
+                    id = ids[i++];
+                    j++;
+                }
+                merged[n++] = id;
+            }
+            ids = merged.length < 2 ? Arrays.copyOf(merged, 2) : merged;
+            size = n;
+        }
+
+        // Drop the sorted ids of other in one pass
+        void removeAll(Postings other) {
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < other.size && other.ids[j] < ids[i]) {
+                    j++;
+                }
+                if (j == other.size || other.ids[j] != ids[i]) {
+                    ids[n++] = ids[i];
+                }
+            }
+            size = n;
+        }
+
+        // First index at or after from whose id is not below target (size if none)
+        int seek(int from, int target) {
+            int step = 1;
+            int hi = from;
+            while (hi < size && ids[hi] < target) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(ids, from, Math.min(hi + 1, size), target);
+            return at >= 0 ? at : -at - 1;
+        }
+
+        private void insert(int at, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package calenderapp;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, latency histograms and bytes read/written per named operation
+ * (such as "EventManager.hasConflict"), cheap enough to stay on: timing an
+ * operation costs two nanoTime calls, a few LongAdder increments and one
+ * histogram increment, with no locks. File I/O is counted where it happens
+ * (AtomicFile, the journal, snapshots) into per-thread totals, and each
+ * timed operation is charged the bytes its thread moved while it ran, so
+ * nested operations all see their own I/O.
+ *
+ * Every operation is registered as an MBean named
+ * calenderapp:type=Operation,name=... and report() formats them all for the
+ * CLI. Run with -Dcalendar.metrics=false to turn recording off.
+ */
+public final class Metrics {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("calendar.metrics", "true"));
+
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    // Bytes read and written by each thread so far; only that thread touches its array
+    private static final ThreadLocal<long[]> THREAD_IO = ThreadLocal.withInitial(() -> new long[2]);
+    private static final Timer NO_TIMER = new Timer(null);
+
+    private Metrics() {
+    }
+
+    // Attributes an MBean client sees for each operation; times are in microseconds
+    public interface OperationMBean {
+        long getCount();
+        long getErrors();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP90Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaxMicros();
+        long getBytesRead();
+        long getBytesWritten();
+        void reset();
+    }
+
+    // The operation called name, created (and registered over JMX) on first use
+    public static Operation operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, Operation::new);
+    }
+
+    // Operations seen so far, by name
+    public static List<Operation> operations() {
+        List<Operation> all = new ArrayList<>(OPERATIONS.values());
+        all.sort(Comparator.comparing(Operation::getName));
+        return all;
+    }
+
+    // Count file bytes moved by the current thread
+    static void bytesRead(long n) {
+        if (ENABLED) {
+            THREAD_IO.get()[0] += n;
+        }
+    }
+
+    static void bytesWritten(long n) {
+        if (ENABLED) {
+            THREAD_IO.get()[1] += n;
+        }
+    }
+
+    public static void resetAll() {
+        for (Operation op : OPERATIONS.values()) {
+            op.reset();
+        }
+    }
+
+    // One line per operation that has run: count, latency percentiles and bytes
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-36s %9s %9s %9s %9s %9s %9s %11s %11s%n",
+                "Operation", "Count", "Mean us", "p50 us", "p99 us", "p99.9 us", "Max us", "Read", "Written"));
+        for (Operation op : operations()) {
+            if (op.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format("%-36s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %11s %11s%n",
+                    op.getName(), op.getCount(), op.getMeanMicros(), op.getP50Micros(), op.getP99Micros(),
+                    op.getP999Micros(), op.getMaxMicros(), bytes(op.getBytesRead()), bytes(op.getBytesWritten())));
+        }
+        return sb.toString();
+    }
+
+    private static String bytes(long n) {
+        if (n < 1024) {
+            return n + " B";
+        }
+        if (n < 1024 * 1024) {
+            return String.format("%.1f KB", n / 1024.0);
+        }
+        return String.format("%.1f MB", n / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Totals for one operation. Time a call with
+     * {@code Metrics.Timer t = OP.time(); try { ... } finally { t.stop(); }};
+     * a timer stopped after fail() counts as an error as well.
+     */
+    public static final class Operation implements OperationMBean {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Operation(String name) {
+            this.name = name;
+            if (ENABLED) {
+                register();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Start timing one call on this thread
+        public Timer time() {
+            return ENABLED ? new Timer(this) : NO_TIMER;
+        }
+
+        void record(long nanos, long read, long written, boolean failed) {
+            count.increment();
+            totalNanos.add(nanos);
+            latency.record(nanos);
+            if (read != 0) {
+                bytesRead.add(read);
+            }
+            if (written != 0) {
+                bytesWritten.add(written);
+            }
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.percentile(0.5) / 1000.0;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return latency.percentile(0.9) / 1000.0;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.percentile(0.99) / 1000.0;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latency.percentile(0.999) / 1000.0;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.getMax() / 1000.0;
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytesRead.sum();
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return bytesWritten.sum();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            errors.reset();
+            totalNanos.reset();
+            bytesRead.reset();
+            bytesWritten.reset();
+            latency.reset();
+        }
+
+        private void register() {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName("calenderapp:type=Operation,name=" + ObjectName.quote(name));
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(new StandardMBean(this, OperationMBean.class), objectName);
+                }
+            } catch (JMException | RuntimeException e) {
+                System.err.println("Error registering metrics for " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // One timed call; stopping it records the time and the bytes its thread moved meanwhile
+    public static final class Timer {
+        private final Operation op;
+        private final long start;
+        private final long startRead;
+        private final long startWritten;
+        private boolean failed;
+
+        private Timer(Operation op) {
+            this.op = op;
+            if (op == null) {
+                start = startRead = startWritten = 0;
+                return;
+            }
+            long[] io = THREAD_IO.get();
+            startRead = io[0];
+            startWritten = io[1];
+            start = System.nanoTime();
+        }
+
+        // Count this call as an error when it stops
+        public void fail() {
+            failed = true;
+        }
+
+        public void stop() {
+            if (op == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - start;
+            long[] io = THREAD_IO.get();
+            op.record(nanos, io[0] - startRead, io[1] - startWritten, failed);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Parses a whole ||-delimited events file held in memory (usually mapped)
+ * on a fork-join pool. The content is cut into chunks that each end just
+ * after a newline, every chunk is parsed by its own EventCsvParser, and the
+ * chunks are joined back in file order, so the events, fields and reported
+ * errors are exactly those of a single parser reading the file start to
+ * end. Error line numbers are shifted by the lines of the chunks before.
+ * Only charsets in which '\n' is the single byte 0x0A can be cut this way;
+ * see canSplit.
+ */
+final class ParallelCsvParser {
+    // Chunks per worker thread, so a slow chunk does not leave the others idle
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_BYTES = 1 << 18;
+
+    private ParallelCsvParser() {
+    }
+
+    // True if text in charset can be cut at 0x0A bytes without splitting a character
+    static boolean canSplit(Charset charset) {
+        byte[] newline = "\n".getBytes(charset);
+        return newline.length == 1 && newline[0] == '\n' && "a".getBytes(charset).length == 1;
+    }
+
+    // Events of content in file order, their fields into fields (if not null) and every malformed line to
+    // errorHandler (if not null), in line order; parallelism 1 parses on the calling thread
+    static List<Event> parse(ByteBuffer content, Charset charset, Map<Integer, AdditionalFieldManager.AdditionalFields> fields,
+                             Consumer<EventCsvParser.ParseError> errorHandler, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        List<Chunk> chunks = split(content, charset, parallelism * CHUNKS_PER_THREAD);
+        if (parallelism == 1 || chunks.size() == 1) {
+            for (Chunk chunk : chunks) {
+                chunk.compute();
+            }
+        } else if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            ForkJoinTask.invokeAll(chunks);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.submit(() -> ForkJoinTask.invokeAll(chunks)).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.failure != null) {
+                throw chunk.failure;
+            }
+            total += chunk.events.size();
+        }
+        List<Event> events = new ArrayList<>(total);
+        int linesBefore = 0;
+        for (Chunk chunk : chunks) {
+            events.addAll(chunk.events);
+            if (fields != null) {
+                fields.putAll(chunk.fields);
+            }
+            if (errorHandler != null) {
+                for (EventCsvParser.ParseError error : chunk.errors) {
+                    errorHandler.accept(new EventCsvParser.ParseError(error.lineNumber + linesBefore, error.message, error.line));
+                }
+            }
+            linesBefore += chunk.lines;
+        }
+        return events;
+    }
+
+    // About count chunks of content, each but the last ending just after a newline
+    private static List<Chunk> split(ByteBuffer content, Charset charset, int count) {
+        int base = content.position();
+        int length = content.remaining();
+        int target = Math.max(MIN_CHUNK_BYTES, length / count + 1);
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        do {
+            int end = Math.min(length, start + target);
+            while (end < length && content.get(base + end - 1) != '\n') {
+                end++;
+            }
+            ByteBuffer slice = content.duplicate();
+            slice.limit(base + end).position(base + start);
+            chunks.add(new Chunk(slice.slice(), charset));
+            start = end;
+        } while (start < length);
+        return chunks;
+    }
+
+    // One newline-aligned piece of the file and what parsing it produced
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ByteBuffer bytes;
+        private final transient Charset charset;
+        private final transient List<Event> events = new ArrayList<>();
+        private final transient Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        private final transient List<EventCsvParser.ParseError> errors = new ArrayList<>();
+        private transient IOException failure;
+        private int lines;
+
+        Chunk(ByteBuffer bytes, Charset charset) {
+            this.bytes = bytes;
+            this.charset = charset;
+        }
+
+        @Override
+        protected void compute() {
+            Reader reader = new InputStreamReader(new ByteBufferInputStream(bytes), charset);
+            try (EventCsvParser parser = new EventCsvParser(reader, errors::add)) {
+                while (parser.hasNext()) {
+                    Event e = parser.next();
+                    events.add(e);
+                    if (parser.getFields() != null) {
+                        fields.put(e.getEventId(), parser.getFields());
+                    }
+                }
+                lines = parser.getLineNumber();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    // Reads a buffer from its position to its limit
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
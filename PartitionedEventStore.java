@@ -0,0 +1,731 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Store that keeps events in one partition per month of their start
+ * (partitions/2026-03.bin, ...), so a windowed EventManager reads only the
+ * months it holds and years of history stay on disk. Each month file is a
+ * binary snapshot of that month's events and their additional fields, with
+ * later changes appended to the month's journal (2026-03.log, in the
+ * EventJournal format); rules.bin holds every recurrence rule and the
+ * fields of ids without an event record. An index from event id to month
+ * (index.bin, with later changes appended to index.log) says which
+ * partition holds the live copy of an event; it costs 8 bytes per event on
+ * disk and no Event objects in memory.
+ *
+ * A change appends one batch to the journal of each month it touches, then
+ * its moves to the index. A moved or deleted event's old copy is left where
+ * it is: copies the index does not point to are ignored, so after a crash
+ * each event is found either as it was before the change or as it is after
+ * it. A month's journal is folded into its file once it outgrows it, and
+ * months left without events are removed when the index is compacted. A
+ * write that fails rereads the index and rules from disk and throws
+ * UncheckedIOException, so the manager can reload what was stored.
+ *
+ * The months read lately are kept in columnar form (EventColumns, a few
+ * primitive array slots per event instead of an Event with its times and
+ * fields), up to a total number of events, so that a month the windowed
+ * manager pages in again and repeated find queries do not go back to the
+ * file and journal. A write drops the months it touches from the cache.
+ */
+public class PartitionedEventStore implements EventStore {
+    static final String PARTITION_DIR = "partitions";
+    private static final String RULES_FILE = "rules.bin";
+    private static final String INDEX_FILE = "index.bin";
+    private static final String INDEX_LOG = "index.log";
+    // Month key of a deleted event in the index log
+    private static final int DELETED = -1;
+    // The index log is folded into index.bin once it holds this many records (or one per event)
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    // A month's journal is folded into its file once it is this large (or larger than the file)
+    private static final long MIN_FOLD_BYTES = 64 * 1024;
+    // Month journals kept open for appending
+    private static final int OPEN_JOURNALS = 16;
+    // Events held by the cache of months read lately
+    static final int DEFAULT_CACHED_EVENTS = 100_000;
+
+    private final File dir;
+    private final boolean fsync;
+    private final int cachedEvents;
+    // Month of every stored event record, by id; each month is one shared YearMonth
+    private final IntHashMap<YearMonth> index = new IntHashMap<>();
+    private final Map<YearMonth, YearMonth> interned = new HashMap<>();
+    // Number of event records per month
+    private final TreeMap<YearMonth, Integer> monthSizes = new TreeMap<>();
+    private final TreeMap<Integer, RecurrenceRule> rules = new TreeMap<>();
+    // Fields of ids with no event record (rule occurrences)
+    private final Map<Integer, AdditionalFieldManager.AdditionalFields> unattached = new HashMap<>();
+    private int maxEventId;
+    private FileOutputStream indexLogFile;
+    private DataOutputStream indexLog;
+    private int indexLogRecords;
+    // Journals of the months written to last, least recently used first
+    private final LinkedHashMap<YearMonth, EventJournal> journals = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<YearMonth, EventJournal> eldest) {
+            if (size() > OPEN_JOURNALS) {
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+    // Months whose journal this store has appended to without error; any other journal may end in a torn batch
+    private final Set<YearMonth> appending = new HashSet<>();
+    // Live events of the months read lately, least recently used first, cachedRows of them in all
+    private final LinkedHashMap<YearMonth, EventColumns> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedRows;
+
+    // Partitions in data/partitions; index appends are fsynced if -Dcalendar.journal.fsync=true, and
+    // -Dcalendar.partitions.cachedEvents bounds the months kept in memory
+    public PartitionedEventStore() {
+        this(new File(FileManager.DATA_DIR), Boolean.getBoolean("calendar.journal.fsync"),
+             Integer.getInteger("calendar.partitions.cachedEvents", DEFAULT_CACHED_EVENTS));
+    }
+
+    public PartitionedEventStore(File dataDir, boolean fsync) {
+        this(dataDir, fsync, DEFAULT_CACHED_EVENTS);
+    }
+
+    // Partitions in dataDir/partitions. The first time, the events in dataDir (whatever the default store
+    // loads from it: snapshot and journal, or the events file alone) are split into partitions; from then
+    // on only the partitions are kept up to date. Months read lately stay cached, up to cachedEvents events
+    public PartitionedEventStore(File dataDir, boolean fsync, int cachedEvents) {
+        if (cachedEvents < 0) {
+            throw new IllegalArgumentException("Cached events cannot be negative");
+        }
+        this.dir = new File(dataDir, PARTITION_DIR);
+        this.fsync = fsync;
+        this.cachedEvents = cachedEvents;
+        try {
+            finishReplace();
+            if (!dir.exists()) {
+                if (AtomicFile.exists(new File(dataDir, FileManager.SNAPSHOT_FILE).toPath()) ||
+                    new File(dataDir, FileManager.JOURNAL_FILE).exists() ||
+                    AtomicFile.exists(new File(dataDir, FileManager.CSV_FILE).toPath())) {
+                    split(dataDir);
+                }
+                return;
+            }
+            readIndex();
+            readRules();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening partitions in " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== READ ====================
+
+    // Every month, every rule and all additional fields
+    @Override
+    public synchronized BinarySnapshot.Contents load() throws IOException {
+        return contents(monthSizes.keySet());
+    }
+
+    // Events starting in the months first..last with their fields, plus every rule and the fields of
+    // rule occurrences; what a windowed EventManager holds at start-up
+    public synchronized BinarySnapshot.Contents loadMonths(YearMonth first, YearMonth last) throws IOException {
+        return contents(monthsBetween(first, last));
+    }
+
+    private BinarySnapshot.Contents contents(Collection<YearMonth> months) throws IOException {
+        List<Event> events = new ArrayList<>();
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        unattached.forEach((id, f) -> fields.put(id, copy(f)));
+        for (YearMonth month : months) {
+            // A bulk load would only push the months queried lately out of the cache
+            EventColumns columns = columns(month, false);
+            events.addAll(columns.asList());
+            fields.putAll(columns.fieldsView());
+        }
+        List<RecurrenceRule> ruleCopies = new ArrayList<>(rules.size());
+        for (RecurrenceRule r : rules.values()) {
+            ruleCopies.add(r.copy());
+        }
+        return new BinarySnapshot.Contents(events, ruleCopies, fields);
+    }
+
+    // The events of one month with their fields (no rules)
+    public synchronized BinarySnapshot.Contents loadMonth(YearMonth month) throws IOException {
+        EventColumns columns = columns(month, true);
+        return new BinarySnapshot.Contents(new ArrayList<>(columns.asList()), new ArrayList<>(),
+                                           new HashMap<>(columns.fieldsView()));
+    }
+
+    // Months first..last that hold at least one event
+    public synchronized List<YearMonth> monthsBetween(YearMonth first, YearMonth last) {
+        return first.isAfter(last) ? List.of() : new ArrayList<>(monthSizes.subMap(first, true, last, true).keySet());
+    }
+
+    // Month of the stored event with this id, or null if there is none (rule occurrences have none)
+    public synchronized YearMonth monthOf(int eventId) {
+        return index.get(eventId);
+    }
+
+    // Highest id of any stored event or rule occurrence
+    public synchronized int maxEventId() {
+        return maxEventId;
+    }
+
+    // ==================== WRITE ====================
+
+    // Each touched month gets one journal batch; a month is only read for the fields of an event leaving it
+    @Override
+    public synchronized void write(Changes changes) {
+        Map<YearMonth, Changes> appended = new TreeMap<>();
+        Map<YearMonth, EventColumns> read = new HashMap<>();
+        // Months whose live events this batch changes, to be dropped from the cache
+        Set<YearMonth> touched = new HashSet<>();
+        // Fields as this batch leaves them (null: none), for ids whose fields it has set or moved
+        Map<Integer, AdditionalFieldManager.AdditionalFields> batchFields = new HashMap<>();
+        // New month of every event that moved, appeared or was deleted (null)
+        Map<Integer, YearMonth> moved = new LinkedHashMap<>();
+        boolean rulesChanged = false;
+        try {
+            for (Changes.Change c : changes.list()) {
+                YearMonth current = moved.containsKey(c.id) ? moved.get(c.id) : index.get(c.id);
+                switch (c.kind) {
+                    case EVENT -> {
+                        YearMonth month = intern(YearMonth.from(c.event.getStart()));
+                        AdditionalFieldManager.AdditionalFields f = c.fields;
+                        if (current == null) {
+                            // Fields saved while the event had no record (a rule occurrence) move in with it
+                            AdditionalFieldManager.AdditionalFields old = unattached.remove(c.id);
+                            if (old != null) {
+                                rulesChanged = true;
+                                f = f == null ? old : f;
+                            }
+                        } else if (!current.equals(month)) {
+                            touched.add(current);
+                            if (f == null) {
+                                f = fieldsOf(c.id, current, batchFields, read);
+                            }
+                        }
+                        Changes batch = appended.computeIfAbsent(month, m -> new Changes());
+                        batch.event(c.event, f);
+                        if (!month.equals(current)) {
+                            if (f == null) {
+                                // An older copy left in this month must not lend the event its fields
+                                batch.fieldsDelete(c.id);
+                            }
+                            batchFields.put(c.id, f);
+                            moved.put(c.id, month);
+                        } else if (f != null) {
+                            batchFields.put(c.id, f);
+                        }
+                    }
+                    case DELETE -> {
+                        if (current != null) {
+                            // As in the journal, the fields outlive the record until they are deleted themselves
+                            AdditionalFieldManager.AdditionalFields f = fieldsOf(c.id, current, batchFields, read);
+                            if (f != null) {
+                                unattached.put(c.id, copy(f));
+                                rulesChanged = true;
+                            }
+                            batchFields.remove(c.id);
+                            moved.put(c.id, null);
+                            touched.add(current);
+                        }
+                    }
+                    case RULE -> {
+                        rules.put(c.id, c.rule.copy());
+                        maxEventId = Math.max(maxEventId, c.rule.getSeriesId() + c.rule.getCount() - 1);
+                        rulesChanged = true;
+                    }
+                    case RULE_DELETE -> rulesChanged |= rules.remove(c.id) != null;
+                    case FIELDS -> {
+                        if (current != null) {
+                            appended.computeIfAbsent(current, m -> new Changes()).fields(c.id, c.fields);
+                            batchFields.put(c.id, c.fields);
+                        } else {
+                            unattached.put(c.id, copy(c.fields));
+                            rulesChanged = true;
+                        }
+                    }
+                    case FIELDS_DELETE -> {
+                        if (current != null) {
+                            appended.computeIfAbsent(current, m -> new Changes()).fieldsDelete(c.id);
+                            batchFields.put(c.id, null);
+                        } else if (unattached.remove(c.id) != null) {
+                            rulesChanged = true;
+                        }
+                    }
+                }
+            }
+            touched.addAll(appended.keySet());
+            touched.forEach(this::uncache);
+            for (Map.Entry<YearMonth, Changes> entry : appended.entrySet()) {
+                YearMonth month = entry.getKey();
+                if (!appending.contains(month) && journalFile(dir, month).exists()) {
+                    // Nothing is appended after a batch a crash or failed write may have torn
+                    fold(month);
+                }
+                if (!journal(month).append(entry.getValue())) {
+                    appending.remove(month);
+                    throw new IOException("journal of " + month + " not written");
+                }
+                appending.add(month);
+            }
+            appendIndex(moved);
+            if (rulesChanged) {
+                writeRules(dir);
+            }
+            for (YearMonth month : appended.keySet()) {
+                if (journalFile(dir, month).length() >= Math.max(MIN_FOLD_BYTES, partitionPath(dir, month).toFile().length())) {
+                    fold(month);
+                }
+            }
+        } catch (IOException e) {
+            throw failed("Error writing partitions: ", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean needsCompaction(int liveRecords) {
+        return indexLogRecords >= Math.max(MIN_COMPACTION_RECORDS, index.size());
+    }
+
+    // Only the index needs compacting (month journals are folded as they are written), so state is not used
+    @Override
+    public synchronized void compact(Supplier<BinarySnapshot.Contents> state, boolean wait) {
+        if (indexLogRecords == 0) {
+            return;
+        }
+        try {
+            writeIndex(dir);
+            closeIndexLog();
+            Files.deleteIfExists(new File(dir, INDEX_LOG).toPath());
+            indexLogRecords = 0;
+            deleteEmptyMonths();
+        } catch (IOException e) {
+            System.err.println("Error compacting partition index: " + e.getMessage());
+        }
+    }
+
+    // The new partitions are written to a fresh directory that then replaces the old one
+    @Override
+    public synchronized void replaceAll(BinarySnapshot.Contents contents) {
+        File staging = sibling(".new");
+        try {
+            deleteTree(staging);
+            closeIndexLog();
+            closeJournals();
+            appending.clear();
+            clearCache();
+            index.clear();
+            monthSizes.clear();
+            rules.clear();
+            unattached.clear();
+            maxEventId = 0;
+            indexLogRecords = 0;
+
+            Map<YearMonth, Map<Integer, Event>> partitions = new TreeMap<>();
+            for (Event e : contents.events) {
+                YearMonth month = intern(YearMonth.from(e.getStart()));
+                partitions.computeIfAbsent(month, m -> new LinkedHashMap<>()).put(e.getEventId(), e);
+                setMonth(e.getEventId(), month);
+            }
+            contents.fields.forEach((id, f) -> {
+                if (!index.containsKey(id)) {
+                    unattached.put(id, copy(f));
+                }
+            });
+            for (RecurrenceRule r : contents.rules) {
+                rules.put(r.getSeriesId(), r.copy());
+                maxEventId = Math.max(maxEventId, r.getSeriesId() + r.getCount() - 1);
+            }
+
+            staging.mkdirs();
+            for (Map.Entry<YearMonth, Map<Integer, Event>> entry : partitions.entrySet()) {
+                writePartition(staging, entry.getKey(), EventColumns.of(entry.getValue().values(), contents.fields));
+            }
+            writeRules(staging);
+            writeIndex(staging);
+            File old = sibling(".old");
+            deleteTree(old);
+            if (dir.exists()) {
+                Files.move(dir.toPath(), old.toPath());
+            }
+            finishReplace();
+        } catch (IOException e) {
+            throw failed("Error replacing partitions: ", e);
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    // Reads only the months the range covers; only the matching rows become Events
+    @Override
+    public synchronized List<Event> findEvents(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Event> found = new ArrayList<>();
+        for (YearMonth month : monthsBetween(YearMonth.from(from), YearMonth.from(to))) {
+            columns(month, true).findEvents(from, to, found);
+        }
+        found.sort(Comparator.comparing(Event::getStart).thenComparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public synchronized List<Event> findSeries(int seriesId) throws IOException {
+        List<Event> found = new ArrayList<>();
+        for (YearMonth month : monthSizes.keySet()) {
+            columns(month, true).findSeries(seriesId, found);
+        }
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    // Every row is tested through one flyweight Event; only the matches are copied
+    @Override
+    public synchronized List<Event> findByKeyword(String keyword) throws IOException {
+        String lower = keyword.toLowerCase();
+        List<Event> found = new ArrayList<>();
+        for (YearMonth month : monthSizes.keySet()) {
+            columns(month, true).forEach(e -> {
+                if (e.getTitle().toLowerCase().contains(lower) || e.getDescription().toLowerCase().contains(lower)) {
+                    found.add(e.copy());
+                }
+            });
+        }
+        found.sort(Comparator.comparingInt(Event::getEventId));
+        return found;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeJournals();
+        try {
+            closeIndexLog();
+        } catch (IOException e) {
+            System.err.println("Error closing partition index: " + e.getMessage());
+        }
+    }
+
+    // ==================== FILES ====================
+
+    // The index, rules and fields in memory go back to what the files hold, so that the manager
+    // reloads what was actually stored; returns the error for the caller to throw
+    private UncheckedIOException failed(String message, IOException cause) {
+        UncheckedIOException failure = new UncheckedIOException(message + cause.getMessage(), cause);
+        closeJournals();
+        appending.clear();
+        clearCache();
+        index.clear();
+        monthSizes.clear();
+        rules.clear();
+        unattached.clear();
+        maxEventId = 0;
+        indexLogRecords = 0;
+        try {
+            closeIndexLog();
+        } catch (IOException e) {
+            indexLog = null;
+            indexLogFile = null;
+            failure.addSuppressed(e);
+        }
+        try {
+            finishReplace();
+            if (dir.exists()) {
+                readIndex();
+                readRules();
+            }
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    // The live events of a month from the cache, or read from disk and, if keep, cached
+    private EventColumns columns(YearMonth month, boolean keep) throws IOException {
+        EventColumns columns = cache.get(month);
+        if (columns == null) {
+            columns = readPartition(month);
+            if (keep && columns.size() <= cachedEvents) {
+                cache.put(month, columns);
+                cachedRows += columns.size();
+                Iterator<EventColumns> eldest = cache.values().iterator();
+                while (cachedRows > cachedEvents) {
+                    cachedRows -= eldest.next().size();
+                    eldest.remove();
+                }
+            }
+        }
+        return columns;
+    }
+
+    private void uncache(YearMonth month) {
+        EventColumns columns = cache.remove(month);
+        if (columns != null) {
+            cachedRows -= columns.size();
+        }
+    }
+
+    private void clearCache() {
+        cache.clear();
+        cachedRows = 0;
+    }
+
+    // The live events of a month (those the index points to) with their fields: the month file with
+    // its journal replayed on top
+    private EventColumns readPartition(YearMonth month) throws IOException {
+        Map<Integer, Event> events = new LinkedHashMap<>();
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        Path source = AtomicFile.resolve(partitionPath(dir, month));
+        if (source != null) {
+            BinarySnapshot.Contents contents = BinarySnapshot.readContents(source);
+            for (Event e : contents.events) {
+                events.put(e.getEventId(), e);
+            }
+            fields.putAll(contents.fields);
+        }
+        if (journalFile(dir, month).exists()) {
+            journal(month).read(events, new HashMap<>(), fields);
+        }
+        events.values().removeIf(e -> !month.equals(index.get(e.getEventId())));
+        return EventColumns.of(events.values(), fields);
+    }
+
+    // Fields of id, stored in month, as the batch being written has left them
+    private AdditionalFieldManager.AdditionalFields fieldsOf(int id, YearMonth month,
+            Map<Integer, AdditionalFieldManager.AdditionalFields> batchFields, Map<YearMonth, EventColumns> read)
+            throws IOException {
+        if (batchFields.containsKey(id)) {
+            return batchFields.get(id);
+        }
+        EventColumns columns = read.get(month);
+        if (columns == null) {
+            columns = columns(month, false);
+            read.put(month, columns);
+        }
+        return columns.getFields(id);
+    }
+
+    // Rewrite the month file from its live events and drop its journal; replaying a journal that
+    // survives a crash in between changes nothing, as every record in it is an upsert or delete by id
+    private void fold(YearMonth month) throws IOException {
+        writePartition(dir, month, columns(month, false));
+        journal(month).clear();
+    }
+
+    // A month with no records has no file
+    private static void writePartition(File dir, YearMonth month, EventColumns columns) throws IOException {
+        Path path = partitionPath(dir, month);
+        if (columns.size() == 0) {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".bak"));
+            return;
+        }
+        BinarySnapshot.write(columns.asList(), List.of(), columns.fieldsView(), path);
+    }
+
+    // Files and journals of months the index no longer points into; only their dead copies are left
+    private void deleteEmptyMonths() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            YearMonth month;
+            try {
+                month = YearMonth.parse(file.getName().substring(0, Math.max(0, file.getName().indexOf('.'))));
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (!monthSizes.containsKey(month)) {
+                uncache(month);
+                EventJournal open = journals.remove(month);
+                if (open != null) {
+                    open.close();
+                }
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    private EventJournal journal(YearMonth month) {
+        return journals.computeIfAbsent(month, m -> new EventJournal(journalFile(dir, m).getPath(), fsync));
+    }
+
+    private void closeJournals() {
+        journals.values().forEach(EventJournal::close);
+        journals.clear();
+    }
+
+    private void writeRules(File target) throws IOException {
+        BinarySnapshot.write(List.of(), new ArrayList<>(rules.values()), unattached,
+                             new File(target, RULES_FILE).toPath());
+    }
+
+    private void readRules() throws IOException {
+        Path source = AtomicFile.resolve(new File(dir, RULES_FILE).toPath());
+        if (source == null) {
+            return;
+        }
+        BinarySnapshot.Contents contents = BinarySnapshot.readContents(source);
+        for (RecurrenceRule r : contents.rules) {
+            rules.put(r.getSeriesId(), r);
+            maxEventId = Math.max(maxEventId, r.getSeriesId() + r.getCount() - 1);
+        }
+        unattached.putAll(contents.fields);
+    }
+
+    // index.bin: int count, count x (int id, int monthKey)
+    private void writeIndex(File target) throws IOException {
+        int[] ids = new int[index.size()];
+        int[] months = new int[index.size()];
+        int[] next = {0};
+        index.forEach((id, month) -> {
+            ids[next[0]] = id;
+            months[next[0]++] = key(month);
+        });
+        AtomicFile.write(new File(target, INDEX_FILE).toPath(), content -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(content, 1 << 16));
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeInt(ids[i]);
+                out.writeInt(months[i]);
+            }
+            out.flush();
+        });
+    }
+
+    // index.bin, then the (id, monthKey) pairs of index.log in order; a torn last pair is cut off
+    private void readIndex() throws IOException {
+        try (InputStream content = AtomicFile.openContent(new File(dir, INDEX_FILE).toPath())) {
+            if (content != null) {
+                DataInputStream in = new DataInputStream(content);
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    setMonth(in.readInt(), month(in.readInt()));
+                }
+            }
+        }
+        File log = new File(dir, INDEX_LOG);
+        if (!log.exists()) {
+            return;
+        }
+        long records = log.length() / 8;
+        if (log.length() % 8 != 0) {
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(records * 8);
+            }
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log), 1 << 16))) {
+            for (long i = 0; i < records; i++) {
+                setMonth(in.readInt(), month(in.readInt()));
+            }
+        }
+        Metrics.bytesRead(records * 8);
+        indexLogRecords = (int) records;
+    }
+
+    // Append the moves to index.log, then apply them
+    private void appendIndex(Map<Integer, YearMonth> moved) throws IOException {
+        if (moved.isEmpty()) {
+            return;
+        }
+        if (indexLog == null) {
+            dir.mkdirs();
+            indexLogFile = new FileOutputStream(new File(dir, INDEX_LOG), true);
+            indexLog = new DataOutputStream(new BufferedOutputStream(indexLogFile));
+        }
+        for (Map.Entry<Integer, YearMonth> entry : moved.entrySet()) {
+            indexLog.writeInt(entry.getKey());
+            indexLog.writeInt(entry.getValue() == null ? DELETED : key(entry.getValue()));
+        }
+        indexLog.flush();
+        if (fsync) {
+            indexLogFile.getFD().sync();
+        }
+        Metrics.bytesWritten(moved.size() * 8L);
+        moved.forEach(this::setMonth);
+        indexLogRecords += moved.size();
+    }
+
+    private void closeIndexLog() throws IOException {
+        if (indexLog != null) {
+            indexLog.close();
+            indexLog = null;
+            indexLogFile = null;
+        }
+    }
+
+    // Record that id's event is stored in month (null: it has no record)
+    private void setMonth(int id, YearMonth month) {
+        YearMonth old = month == null ? index.remove(id) : index.put(id, month);
+        if (old != null) {
+            monthSizes.computeIfPresent(old, (m, n) -> n == 1 ? null : n - 1);
+        }
+        if (month != null) {
+            monthSizes.merge(month, 1, Integer::sum);
+            maxEventId = Math.max(maxEventId, id);
+        }
+    }
+
+    // A replacement interrupted after the old directory was moved aside is completed
+    private void finishReplace() throws IOException {
+        File staging = sibling(".new");
+        if (!dir.exists() && staging.exists()) {
+            Files.move(staging.toPath(), dir.toPath());
+        }
+        deleteTree(sibling(".old"));
+    }
+
+    private File sibling(String suffix) {
+        return new File(dir.getParentFile(), dir.getName() + suffix);
+    }
+
+    private static void deleteTree(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    // Split the snapshot and journal of dataDir into partitions
+    private void split(File dataDir) {
+        JournalEventStore source = new JournalEventStore(dataDir, false);
+        try {
+            BinarySnapshot.Contents contents = source.load();
+            replaceAll(contents);
+            System.out.println("Split " + contents.events.size() + " events into " + monthSizes.size() +
+                               " monthly partitions in " + dir);
+        } finally {
+            source.close();
+        }
+    }
+
+    private static Path partitionPath(File dir, YearMonth month) {
+        return new File(dir, month + ".bin").toPath();
+    }
+
+    private static File journalFile(File dir, YearMonth month) {
+        return new File(dir, month + ".log");
+    }
+
+    private YearMonth intern(YearMonth month) {
+        return interned.computeIfAbsent(month, m -> m);
+    }
+
+    private static int key(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private YearMonth month(int key) {
+        return key == DELETED ? null : intern(YearMonth.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1));
+    }
+
+    private static AdditionalFieldManager.AdditionalFields copy(AdditionalFieldManager.AdditionalFields f) {
+        return new AdditionalFieldManager.AdditionalFields(f.location, f.category, f.attendees);
+    }
+}
@@ -0,0 +1,24 @@
+package calenderapp;
+
+/**
+ * How a recurring series repeats. Events and rules hold the constant, not
+ * a string of their own; files and the database store its name.
+ */
+public enum Recurrence {
+    DAILY, WEEKLY, MONTHLY;
+
+    private static final Recurrence[] VALUES = values();
+
+    // The type with this name, or null for null; anything else is invalid
+    public static Recurrence of(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Recurrence r : VALUES) {
+            if (r.name().equals(name)) {
+                return r;
+            }
+        }
+        throw new IllegalArgumentException("Invalid recurrence type");
+    }
+}
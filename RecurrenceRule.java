@@ -0,0 +1,251 @@
+package calenderapp;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A recurring series stored as one rule instead of one Event per occurrence.
+ * Occurrence i has event id seriesId + i and is expanded only when a query
+ * window asks for it. Deleted occurrences are recorded as cancelled indices;
+ * edited occurrences are materialized as ordinary events by EventManager and
+ * marked as overridden here so the rule no longer produces them.
+ */
+public class RecurrenceRule {
+    private final int seriesId;
+    private String title;
+    private String description;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final Recurrence recurrence;
+    private final int count;
+    private int reminderMinutes;
+    private final long durationMinutes;
+    private final BitSet cancelled = new BitSet();
+    private final BitSet overridden = new BitSet();
+
+    public RecurrenceRule(int seriesId, String title, String description, LocalDateTime start, LocalDateTime end,
+                          String recurrenceType, int count, int reminderMinutes) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Title cannot be empty");
+        }
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Start and end times cannot be null");
+        }
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+        Recurrence recurrence = Recurrence.of(recurrenceType);
+        if (recurrence == null) {
+            throw new IllegalArgumentException("Invalid recurrence type");
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Recurrence count must be positive");
+        }
+        this.seriesId = seriesId;
+        this.title = title;
+        this.description = description == null ? "" : description;
+        this.start = start;
+        this.end = end;
+        this.recurrence = recurrence;
+        this.count = count;
+        this.reminderMinutes = reminderMinutes;
+        this.durationMinutes = Duration.between(start, end).toMinutes();
+    }
+
+    // Rule equivalent to the occurrences addRecurringEvent used to create from a template event
+    public static RecurrenceRule fromTemplate(int seriesId, Event template) {
+        return new RecurrenceRule(seriesId, template.getTitle(), template.getDescription(),
+                template.getStart(), template.getEnd(), template.getRecurrenceType(),
+                template.getRecurrenceCount(), template.getReminderMinutes());
+    }
+
+    // Getters
+    public int getSeriesId() { return seriesId; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public LocalDateTime getStart() { return start; }
+    public LocalDateTime getEnd() { return end; }
+    public String getRecurrenceType() { return recurrence.name(); }
+    public Recurrence getRecurrence() { return recurrence; }
+    public int getCount() { return count; }
+    public int getReminderMinutes() { return reminderMinutes; }
+
+    // Setters for series-wide edits
+    public void setTitle(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Title cannot be empty");
+        }
+        this.title = title;
+    }
+
+    public void setDescription(String description) {
+        this.description = description == null ? "" : description;
+    }
+
+    public void setReminderMinutes(int reminderMinutes) {
+        if (reminderMinutes < 0) {
+            throw new IllegalArgumentException("Reminder minutes cannot be negative");
+        }
+        this.reminderMinutes = reminderMinutes;
+    }
+
+    // ==================== OCCURRENCES ====================
+
+    public boolean contains(int eventId) {
+        return eventId >= seriesId && eventId - seriesId < count;
+    }
+
+    public int indexOf(int eventId) {
+        return eventId - seriesId;
+    }
+
+    public LocalDateTime occurrenceStart(int index) {
+        return switch (recurrence) {
+            case DAILY -> start.plusDays(index);
+            case WEEKLY -> start.plusWeeks(index);
+            case MONTHLY -> {
+                // Months are added one at a time so day-of-month clamping matches the old expansion
+                LocalDateTime t = start;
+                for (int i = 0; i < index; i++) {
+                    t = t.plusMonths(1);
+                }
+                yield t;
+            }
+        };
+    }
+
+    public LocalDateTime occurrenceEnd(int index, LocalDateTime occurrenceStart) {
+        return index == 0 ? end : occurrenceStart.plusMinutes(durationMinutes);
+    }
+
+    // End of the last occurrence, whether or not it is active
+    public LocalDateTime getLastEnd() {
+        int last = count - 1;
+        return occurrenceEnd(last, occurrenceStart(last));
+    }
+
+    // True if the rule itself still produces occurrence index
+    public boolean isActive(int index) {
+        return index >= 0 && index < count && !cancelled.get(index) && !overridden.get(index);
+    }
+
+    // Occurrences the rule still produces
+    public int getActiveCount() {
+        BitSet hidden = (BitSet) cancelled.clone();
+        hidden.or(overridden);
+        return count - hidden.get(0, count).cardinality();
+    }
+
+    public void cancel(int index) {
+        cancelled.set(index);
+    }
+
+    public void markOverridden(int index) {
+        overridden.set(index);
+    }
+
+    public void clearOverride(int index) {
+        overridden.clear(index);
+    }
+
+    public BitSet getCancelled() {
+        return (BitSet) cancelled.clone();
+    }
+
+    // Flyweight Event for one occurrence
+    public Event occurrence(int index) {
+        LocalDateTime s = occurrenceStart(index);
+        return occurrence(index, s, occurrenceEnd(index, s));
+    }
+
+    private Event occurrence(int index, LocalDateTime s, LocalDateTime e) {
+        Event event = new Event(seriesId + index, title, description, s, e);
+        event.setRecurring(true);
+        event.setRecurrence(recurrence);
+        event.setRecurrenceCount(count);
+        event.setSeriesId(seriesId);
+        event.setReminderMinutes(reminderMinutes);
+        return event;
+    }
+
+    // Active occurrences starting within [from, to)
+    public List<Event> occurrencesStartingBetween(LocalDateTime from, LocalDateTime to) {
+        List<Event> results = new ArrayList<>();
+        int i = firstIndexStartingAtOrAfter(from);
+        LocalDateTime s = i < count ? occurrenceStart(i) : null;
+        for (; i < count && s.isBefore(to); i++, s = next(s)) {
+            if (isActive(i)) {
+                results.add(occurrence(i, s, occurrenceEnd(i, s)));
+            }
+        }
+        return results;
+    }
+
+    // Active occurrences overlapping [from, to), skipping excludeId
+    public List<Event> occurrencesOverlapping(LocalDateTime from, LocalDateTime to, int excludeId) {
+        List<Event> results = new ArrayList<>();
+        // Occurrences last at most durationMinutes + 1 (the first keeps its exact end)
+        int i = firstIndexStartingAtOrAfter(from.minusMinutes(durationMinutes + 1));
+        LocalDateTime s = i < count ? occurrenceStart(i) : null;
+        for (; i < count && s.isBefore(to); i++, s = next(s)) {
+            LocalDateTime e = occurrenceEnd(i, s);
+            if (isActive(i) && e.isAfter(from) && seriesId + i != excludeId) {
+                results.add(occurrence(i, s, e));
+            }
+        }
+        return results;
+    }
+
+    // All active occurrences in order
+    public List<Event> occurrences() {
+        List<Event> results = new ArrayList<>(count);
+        LocalDateTime s = start;
+        for (int i = 0; i < count; i++, s = next(s)) {
+            if (isActive(i)) {
+                results.add(occurrence(i, s, occurrenceEnd(i, s)));
+            }
+        }
+        return results;
+    }
+
+    private LocalDateTime next(LocalDateTime s) {
+        return switch (recurrence) {
+            case DAILY -> s.plusDays(1);
+            case WEEKLY -> s.plusWeeks(1);
+            case MONTHLY -> s.plusMonths(1);
+        };
+    }
+
+    // Smallest index whose start is not before t (count if none)
+    private int firstIndexStartingAtOrAfter(LocalDateTime t) {
+        if (!t.isAfter(start)) {
+            return 0;
+        }
+        int i = 0;
+        if (recurrence != Recurrence.MONTHLY) {
+            // Jump close to the answer, then step; the estimate never overshoots
+            long step = recurrence == Recurrence.DAILY ? 1 : 7;
+            long estimate = ChronoUnit.DAYS.between(start, t) / step - 1;
+            i = (int) Math.max(0, Math.min(count, estimate));
+        }
+        LocalDateTime s = occurrenceStart(i);
+        while (i < count && s.isBefore(t)) {
+            i++;
+            s = next(s);
+        }
+        return i;
+    }
+
+    // Independent copy (used for background snapshots)
+    public RecurrenceRule copy() {
+        RecurrenceRule r = new RecurrenceRule(seriesId, title, description, start, end, recurrence.name(), count,
+                                              reminderMinutes);
+        r.cancelled.or(cancelled);
+        r.overridden.or(overridden);
+        return r;
+    }
+}
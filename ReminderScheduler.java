@@ -0,0 +1,353 @@
+package calenderapp;
+
+import java.io.IOException;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fires event reminders (reminderMinutes before the start; 0 means no
+ * reminder) on one background thread. Only reminders due within a rolling
+ * horizon are queued, in a primitive min-heap ordered by due time, so memory
+ * follows the reminders due soon rather than every pending one. The thread
+ * sleeps until the earliest due reminder or the end of the horizon, never
+ * polling the event list. Changes reach it through EventManager's change
+ * listener: the days touched by a change are rescanned in the new snapshot.
+ * A queued reminder is checked against the current snapshot before it is
+ * delivered, so reminders of deleted or rescheduled events are dropped.
+ * Recurring occurrences are included. With a windowed manager each horizon
+ * is paged in where that is safe (through ConcurrentEventManager, and the
+ * first horizon on the caller's thread); months still not in memory are
+ * read from the manager's store, which is checked again before delivery.
+ */
+public class ReminderScheduler implements EventManager.ChangeListener, AutoCloseable {
+    private static final Duration DEFAULT_HORIZON = Duration.ofHours(24);
+    // The heap is rebuilt once it holds this many more entries than live reminders
+    private static final int MAX_STALE = 1024;
+    // Due time of an id with no queued reminder; dueOf gives it to events without one, which are never queued
+    private static final long NOT_QUEUED = Long.MIN_VALUE;
+
+    private final Supplier<CalendarSnapshot> snapshots;
+    // Snapshot for a coming horizon, paged in where that is safe from the scheduler thread
+    private final BiFunction<LocalDateTime, LocalDateTime, CalendarSnapshot> horizons;
+    // Windowed managers: the store holding the months not in memory; null otherwise
+    private final EventStore history;
+    private final Consumer<EventManager.ChangeListener> unregister;
+    private final Consumer<Event> delivery;
+    private final Clock clock;
+    private final long horizonMillis;
+    private final ScheduledExecutorService executor;
+
+    // Touched only on the executor thread
+    private final ReminderHeap heap = new ReminderHeap();
+    // Due time (epoch millis) of the reminder queued for each event id, unboxed
+    private final IntLongHashMap queued = new IntLongHashMap();
+    // Windowed managers: start of each queued event, to find it in the store once its month is paged out
+    private final IntHashMap<LocalDateTime> queuedStarts = new IntHashMap<>();
+    // Reminders due in [loadedFrom, loadedUntil) have been queued
+    private long loadedFrom;
+    private long loadedUntil;
+    // Longest reminder seen, so a scan by start time finds every reminder due in a window
+    private long maxReminderMinutes;
+    private ScheduledFuture<?> wake;
+    private long wakeAt = Long.MAX_VALUE;
+    private volatile int queuedCount;
+
+    public ReminderScheduler(EventManager manager, Consumer<Event> delivery) {
+        this(manager, delivery, Clock.systemDefaultZone(), DEFAULT_HORIZON);
+    }
+
+    // The manager is not thread-safe, so only the first horizon is paged in (here); later ones come
+    // from the store where they are not in memory
+    public ReminderScheduler(EventManager manager, Consumer<Event> delivery, Clock clock, Duration horizon) {
+        this(manager::snapshot, manager::publishedSnapshot, (from, to) -> manager.publishedSnapshot(),
+             manager.isWindowed() ? manager.getStore() : null, manager::addChangeListener,
+             manager::removeChangeListener, delivery, clock, horizon);
+    }
+
+    public ReminderScheduler(ConcurrentEventManager manager, Consumer<Event> delivery) {
+        this(manager::snapshot, manager::snapshot, manager::snapshot, manager.isWindowed() ? manager.getStore() : null,
+             manager::addChangeListener, manager::removeChangeListener, delivery, Clock.systemDefaultZone(),
+             DEFAULT_HORIZON);
+    }
+
+    // current is called once on the caller's thread; snapshots, horizons and history must be safe to call
+    // from the scheduler thread
+    private ReminderScheduler(BiFunction<LocalDateTime, LocalDateTime, CalendarSnapshot> current,
+                              Supplier<CalendarSnapshot> snapshots,
+                              BiFunction<LocalDateTime, LocalDateTime, CalendarSnapshot> horizons, EventStore history,
+                              Consumer<EventManager.ChangeListener> register,
+                              Consumer<EventManager.ChangeListener> unregister, Consumer<Event> delivery,
+                              Clock clock, Duration horizon) {
+        if (horizon.isNegative() || horizon.isZero()) {
+            throw new IllegalArgumentException("Horizon must be positive");
+        }
+        this.snapshots = snapshots;
+        this.horizons = horizons;
+        this.history = history;
+        this.unregister = unregister;
+        this.delivery = delivery;
+        this.clock = clock;
+        this.horizonMillis = horizon.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reminder-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        // Register first so no change can fall between the initial scan and the first notification
+        register.accept(this);
+        // Reminders already due when the scheduler starts are not delivered
+        long now = clock.millis();
+        CalendarSnapshot first = current.apply(toDateTime(now), toDateTime(now + horizonMillis));
+        executor.execute(() -> start(first, now));
+    }
+
+    // Reminders currently queued (due within the horizon)
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    @Override
+    public void close() {
+        unregister.accept(this);
+        executor.shutdownNow();
+    }
+
+    // Called by EventManager on the writer's thread; the work is handed to the scheduler thread
+    @Override
+    public void snapshotPublished(CalendarSnapshot snapshot, Set<LocalDate> days) {
+        List<LocalDate> changed = new ArrayList<>(days);
+        try {
+            executor.execute(() -> rescan(snapshot, changed));
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    // ==================== SCHEDULER THREAD ====================
+
+    private void start(CalendarSnapshot snapshot, long now) {
+        for (Event e : snapshot.getEvents()) {
+            maxReminderMinutes = Math.max(maxReminderMinutes, e.getReminderMinutes());
+        }
+        loadedFrom = now;
+        loadedUntil = now;
+        extend(snapshot, now + horizonMillis);
+        reschedule();
+    }
+
+    // Queue the reminders due in [loadedUntil, until)
+    private void extend(CalendarSnapshot snapshot, long until) {
+        LocalDate first = toDateTime(loadedUntil).toLocalDate();
+        LocalDate last = toDateTime(until).plusMinutes(maxReminderMinutes).toLocalDate();
+        for (Event e : snapshot.window(first, last)) {
+            long due = dueOf(e);
+            if (due >= loadedUntil && due < until) {
+                enqueue(e, due);
+            }
+        }
+        for (Event e : findStored(snapshot, first, last)) {
+            long due = dueOf(e);
+            if (due >= loadedUntil && due < until) {
+                enqueue(e, due);
+            }
+        }
+        loadedUntil = until;
+    }
+
+    // Windowed managers: the stored events starting on first..last that the snapshot does not hold
+    private List<Event> findStored(CalendarSnapshot snapshot, LocalDate first, LocalDate last) {
+        if (history == null) {
+            return List.of();
+        }
+        List<Event> found = new ArrayList<>();
+        try {
+            for (Event e : history.findEvents(first.atStartOfDay(), last.plusDays(1).atStartOfDay())) {
+                if (snapshot.getEventById(e.getEventId()) == null) {
+                    maxReminderMinutes = Math.max(maxReminderMinutes, e.getReminderMinutes());
+                    found.add(e);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("Error reading reminders from storage: " + ex.getMessage());
+        }
+        return found;
+    }
+
+    // Windowed managers: the event with this id if it is still stored with its reminder due at due, or null
+    private Event storedDue(int id, long due) {
+        LocalDateTime start = history == null ? null : queuedStarts.get(id);
+        if (start == null) {
+            return null;
+        }
+        for (Event e : findStored(snapshots.get(), start.toLocalDate(), start.toLocalDate())) {
+            if (e.getEventId() == id && dueOf(e) == due) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    // Bring the queue up to date with the events now on the changed days
+    private void rescan(CalendarSnapshot snapshot, List<LocalDate> days) {
+        for (LocalDate day : days) {
+            for (Event e : snapshot.getEventsForDate(day)) {
+                maxReminderMinutes = Math.max(maxReminderMinutes, e.getReminderMinutes());
+                long due = dueOf(e);
+                long current = queued.get(e.getEventId(), NOT_QUEUED);
+                if (due >= loadedFrom && due < loadedUntil) {
+                    if (current != due) {
+                        enqueue(e, due);
+                    }
+                } else if (current != NOT_QUEUED) {
+                    // Moved out of the horizon or lost its reminder; the heap entry is now stale
+                    queued.remove(e.getEventId());
+                    queuedStarts.remove(e.getEventId());
+                }
+            }
+        }
+        queuedCount = queued.size();
+        if (heap.size > 2 * queued.size() + MAX_STALE) {
+            heap.rebuild(queued);
+        }
+        reschedule();
+    }
+
+    private void tick() {
+        wake = null;
+        wakeAt = Long.MAX_VALUE;
+        long now = clock.millis();
+        CalendarSnapshot snapshot = snapshots.get();
+        while (heap.size > 0 && heap.peekDue() <= now) {
+            long due = heap.peekDue();
+            int id = heap.pop();
+            if (queued.get(id, NOT_QUEUED) != due) {
+                continue;
+            }
+            queued.remove(id);
+            Event e = snapshot.getEventById(id);
+            if (e == null) {
+                e = storedDue(id, due);
+            }
+            queuedStarts.remove(id);
+            if (e != null && dueOf(e) == due) {
+                deliver(e);
+            }
+        }
+        loadedFrom = now;
+        if (now >= loadedUntil) {
+            extend(horizons.apply(toDateTime(now), toDateTime(now + horizonMillis)), now + horizonMillis);
+        }
+        queuedCount = queued.size();
+        reschedule();
+    }
+
+    private void deliver(Event e) {
+        try {
+            delivery.accept(e);
+        } catch (RuntimeException ex) {
+            System.err.println("Reminder delivery failed for event " + e.getEventId() + ": " + ex.getMessage());
+        }
+    }
+
+    private void enqueue(Event e, long due) {
+        queued.put(e.getEventId(), due);
+        heap.push(due, e.getEventId());
+        if (history != null) {
+            queuedStarts.put(e.getEventId(), e.getStart());
+        }
+    }
+
+    // Sleep until the earliest reminder or the end of the horizon, whichever comes first
+    private void reschedule() {
+        long next = heap.size > 0 ? Math.min(heap.peekDue(), loadedUntil) : loadedUntil;
+        if (wake != null && wakeAt <= next) {
+            return;
+        }
+        if (wake != null) {
+            wake.cancel(false);
+        }
+        wakeAt = next;
+        wake = executor.schedule(this::tick, Math.max(0, next - clock.millis()), TimeUnit.MILLISECONDS);
+    }
+
+    // Epoch millis of e's reminder, or Long.MIN_VALUE if it has none
+    private long dueOf(Event e) {
+        if (e.getReminderMinutes() <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return e.getStart().minusMinutes(e.getReminderMinutes()).atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), clock.getZone());
+    }
+
+    // Binary min-heap of (due, id) pairs in parallel arrays; 12 bytes per entry, no boxing
+    private static class ReminderHeap {
+        long[] due = new long[64];
+        int[] ids = new int[64];
+        int size;
+
+        long peekDue() {
+            return due[0];
+        }
+
+        void push(long d, int id) {
+            if (size == due.length) {
+                due = Arrays.copyOf(due, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (due[parent] <= d) {
+                    break;
+                }
+                due[i] = due[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            due[i] = d;
+            ids[i] = id;
+        }
+
+        // Remove the earliest entry and return its id
+        int pop() {
+            int top = ids[0];
+            size--;
+            long d = due[size];
+            int id = ids[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && due[child + 1] < due[child]) {
+                    child++;
+                }
+                if (due[child] >= d) {
+                    break;
+                }
+                due[i] = due[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            due[i] = d;
+            ids[i] = id;
+            return top;
+        }
+
+        // Drop stale entries: refill from the live reminders
+        void rebuild(IntLongHashMap live) {
+            size = 0;
+            due = new long[Math.max(64, Integer.highestOneBit(Math.max(1, live.size())) * 2)];
+            ids = new int[due.length];
+            live.forEach((id, d) -> push(d, id));
+        }
+    }
+}
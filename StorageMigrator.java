@@ -0,0 +1,86 @@
+package calenderapp;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Moves data from the two-file layout (events in events.bin or events.csv,
+ * additional fields in additional.csv, all in the data directory) into the
+ * unified snapshot, where each event record carries its own fields.
+ * FileManager.loadSnapshot runs it automatically when it finds a snapshot
+ * without fields; main runs it on its own. The old fields file is renamed
+ * to additional.csv.migrated only after the unified snapshot has been
+ * written, so an interrupted migration simply runs again on the next load.
+ */
+public class StorageMigrator {
+    static final String LEGACY_FIELDS_FILE = "additional.csv";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
+    // Run the migration (if needed) on the given data directory (default data) and report what the
+    // unified snapshot holds
+    public static void main(String[] args) {
+        File dir = new File(args.length > 0 ? args[0] : FileManager.DATA_DIR);
+        BinarySnapshot.Contents contents = FileManager.loadSnapshot(dir);
+        System.out.println("Unified storage in " + new File(dir, FileManager.SNAPSHOT_FILE) + ": " +
+                           contents.events.size() + " events, " + contents.rules.size() + " recurrence rules, " +
+                           contents.fields.size() + " field entries");
+    }
+
+    // Contents loaded from the legacy layout, completed with the legacy fields file; the unified
+    // snapshot is written when there was a fields file to fold in
+    static BinarySnapshot.Contents migrate(File dir, BinarySnapshot.Contents legacy) {
+        Path fieldsFile = new File(dir, LEGACY_FIELDS_FILE).toPath();
+        if (!AtomicFile.exists(fieldsFile)) {
+            return new BinarySnapshot.Contents(legacy.events, legacy.rules, new HashMap<>());
+        }
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = readLegacyFields(fieldsFile);
+        if (FileManager.saveSnapshot(dir, legacy.events, legacy.rules, fields)) {
+            retire(fieldsFile);
+            System.out.println("Migrated " + legacy.events.size() + " events and " + fields.size() +
+                               " field entries to " + new File(dir, FileManager.SNAPSHOT_FILE));
+        }
+        return new BinarySnapshot.Contents(legacy.events, legacy.rules, fields);
+    }
+
+    // Parse a legacy fields file: a header line, then eventId||location||category||attendees
+    static Map<Integer, AdditionalFieldManager.AdditionalFields> readLegacyFields(Path file) {
+        Map<Integer, AdditionalFieldManager.AdditionalFields> fields = new HashMap<>();
+        try (InputStream content = AtomicFile.openContent(file)) {
+            if (content == null) {
+                return fields;
+            }
+            BufferedReader br = new BufferedReader(new InputStreamReader(content));
+            String line = br.readLine(); // skip header
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+
+                String[] parts = line.split("\\|\\|", -1);
+                if (parts.length == 4) {
+                    try {
+                        int id = Integer.parseInt(parts[0].trim());
+                        fields.put(id, new AdditionalFieldManager.AdditionalFields(parts[1], parts[2], parts[3]));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Invalid event ID in additional fields: " + parts[0]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading additional fields: " + e.getMessage());
+        }
+        return fields;
+    }
+
+    // Keep the old file under a new name, so it is never read again but is not lost either
+    private static void retire(Path fieldsFile) {
+        try {
+            if (Files.exists(fieldsFile)) {
+                Files.move(fieldsFile, fieldsFile.resolveSibling(fieldsFile.getFileName() + MIGRATED_SUFFIX),
+                           StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(fieldsFile.resolveSibling(fieldsFile.getFileName() + ".bak"));
+        } catch (IOException e) {
+            System.err.println("Error retiring " + fieldsFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package calenderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * FileManager reading and saving 1k, 100k and 1M generated events (single
+ * events and expanded daily, weekly and monthly series, a quarter of them
+ * with additional fields), as the events CSV and as the binary snapshot the
+ * default store starts from. The files go to a temporary directory removed
+ * after the run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FileBenchmarks {
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    private File dir;
+    private File csv;
+    private List<Event> calendar;
+    private Map<Integer, AdditionalFieldManager.AdditionalFields> fields;
+
+    @Setup
+    public void generate() throws IOException {
+        dir = Files.createTempDirectory("calendar-bench").toFile();
+        csv = new File(dir, FileManager.CSV_FILE);
+        calendar = CalendarBenchmark.generateEvents(events, 42L);
+        fields = CalendarBenchmark.generateFields(calendar, 42L);
+        FileManager.writeEventsCsv(csv, calendar, fields);
+        FileManager.saveSnapshot(dir, calendar, List.of(), fields);
+    }
+
+    @TearDown
+    public void delete() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public List<Event> readEventsCsv() {
+        return FileManager.readEventsCsv(csv);
+    }
+
+    @Benchmark
+    public File saveEventsCsv() throws IOException {
+        FileManager.writeEventsCsv(csv, calendar, fields);
+        return csv;
+    }
+
+    @Benchmark
+    public BinarySnapshot.Contents loadSnapshot() {
+        return FileManager.loadSnapshot(dir);
+    }
+
+    @Benchmark
+    public boolean saveSnapshot() {
+        return FileManager.saveSnapshot(dir, calendar, List.of(), fields);
+    }
+}
@@ -0,0 +1,70 @@
+package calenderapp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * EventManager queries over a generated calendar (about 70% single events,
+ * the rest daily, weekly and monthly series) of 1k, 100k and 1M events.
+ * Each call takes the next of 1024 random slots, so the queries spread over
+ * the two years the calendar spans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class QueryBenchmarks {
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    private EventManager manager;
+    private final LocalDateTime[] slots = new LocalDateTime[1024];
+    private final LocalDate[] days = new LocalDate[1024];
+    private int next;
+
+    @Setup
+    public void generate() {
+        manager = CalendarBenchmark.generateCalendar(events, 42L);
+        Random random = new Random(11);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = CalendarBenchmark.ORIGIN.plusDays(random.nextInt(CalendarBenchmark.SPAN_DAYS))
+                    .plusMinutes(15L * random.nextInt(48));
+            days[i] = slots[i].toLocalDate();
+        }
+        // The first snapshot read builds the snapshot; keep that out of the measurement
+        manager.getEventsForDate(days[0]);
+    }
+
+    @Benchmark
+    public boolean hasConflict() {
+        LocalDateTime start = slots[next++ & 1023];
+        return manager.hasConflict(start, start.plusHours(1));
+    }
+
+    @Benchmark
+    public List<Event> searchByDateRange() {
+        LocalDate day = days[next++ & 1023];
+        return manager.searchByDateRange(day, day.plusDays(6));
+    }
+
+    @Benchmark
+    public List<Event> getEventsForDate() {
+        return manager.getEventsForDate(days[next++ & 1023]);
+    }
+
+    @Benchmark
+    public List<Event> searchByKeywordCommon() {
+        return manager.searchByKeyword("review");
+    }
+
+    @Benchmark
+    public List<Event> searchByKeywordRare() {
+        return manager.searchByKeyword("room 204");
+    }
+}
@@ -0,0 +1,45 @@
+package calenderapp;
+
+import java.io.Writer;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CalenderViewCLI month views of a generated calendar of 1k, 100k and 1M
+ * events, written to a discarding Writer. Each call renders the next of the
+ * 24 months the calendar spans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RenderBenchmarks {
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    private CalenderViewCLI view;
+    private final YearMonth[] months = new YearMonth[24];
+    private int next;
+
+    @Setup
+    public void generate() {
+        EventManager manager = CalendarBenchmark.generateCalendar(events, 42L);
+        view = new CalenderViewCLI(manager, Writer.nullWriter());
+        for (int i = 0; i < months.length; i++) {
+            months[i] = YearMonth.from(CalendarBenchmark.ORIGIN).plusMonths(i);
+        }
+    }
+
+    @Benchmark
+    public void displayMonthCalendarView() {
+        view.displayMonthCalendarView(months[next++ % months.length]);
+    }
+
+    @Benchmark
+    public void displayMonthListView() {
+        view.displayMonthListView(months[next++ % months.length]);
+    }
+}